@@ -1,6 +1,11 @@
 package io.github.apace100.calio;
 
+import io.github.apace100.calio.network.CalioNetworking;
+import io.github.apace100.calio.util.RegistryTagSnapshot;
+import io.github.apace100.calio.util.TagEpoch;
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.CommonLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.minecraft.advancement.criterion.Criteria;
 import net.minecraft.item.ItemStack;
 import net.minecraft.registry.DynamicRegistryManager;
@@ -19,11 +24,20 @@ public class Calio implements ModInitializer {
     public static final Logger LOGGER = LogManager.getLogger(Calio.class);
 
 	public static final ThreadLocal<DynamicRegistryManager> DYNAMIC_REGISTRIES = new ThreadLocal<>();
+
+	/**
+	 * @deprecated use {@link io.github.apace100.calio.util.RegistryTagSnapshot} instead, which is shared by every thread. This is
+	 * still set on the thread that loads the tags (and on the threads that decode data objects concurrently) until it's removed.
+	 */
+	@Deprecated(forRemoval = true)
 	public static final ThreadLocal<Map<TagKey<?>, Collection<RegistryEntry<?>>>> REGISTRY_TAGS = new ThreadLocal<>();
 
 	@Override
 	public void onInitialize() {
         Criteria.register(CodeTriggerCriterion.ID.toString(), CodeTriggerCriterion.INSTANCE);
+        CalioNetworking.registerReceivers();
+        CommonLifecycleEvents.TAGS_LOADED.register((registries, client) -> TagEpoch.TAGS_RELOADED.invoker().onTagsReloaded(TagEpoch.current(), registries, client));
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> RegistryTagSnapshot.publish(null));
 	}
 
 	public static boolean hasNonItalicName(ItemStack stack) {
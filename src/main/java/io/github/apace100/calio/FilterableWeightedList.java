@@ -3,7 +3,11 @@ package io.github.apace100.calio;
 import io.github.apace100.calio.mixin.WeightedListEntryAccessor;
 import net.minecraft.util.collection.WeightedList;
 
+import java.util.Arrays;
+import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ObjIntConsumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -11,13 +15,28 @@ public class FilterableWeightedList<U> extends WeightedList<U> {
 
     private Predicate<U> filter;
 
+    //  Incremented whenever an entry is added, the entries are reordered or the filter is changed
+    private volatile int version;
+    private volatile FilteredView<U> filteredView;
+
+    /**
+     *  @return the number of entries, regardless of the filter.
+     */
     public int size() {
         return entries.size();
     }
 
+    /**
+     *  @return the number of entries that pass the filter (if any.)
+     */
+    public int filteredSize() {
+        return getFilteredView().entries().length;
+    }
+
     public void addFilter(Predicate<U> filter) {
         if(hasFilter()) {
             this.filter = this.filter.and(filter);
+            this.version++;
         } else {
             setFilter(filter);
         }
@@ -25,37 +44,105 @@ public class FilterableWeightedList<U> extends WeightedList<U> {
 
     public void setFilter(Predicate<U> filter) {
         this.filter = filter;
+        this.version++;
     }
 
     public void removeFilter() {
         this.filter = null;
+        this.version++;
     }
 
     public boolean hasFilter() {
         return this.filter != null;
     }
 
+    @Override
+    public WeightedList<U> add(U data, int weight) {
+        super.add(data, weight);
+        this.version++;
+        return this;
+    }
+
+    @Override
+    public WeightedList<U> shuffle() {
+        super.shuffle();
+        this.version++;
+        return this;
+    }
+
     public Stream<U> stream() {
-        if(filter != null) {
-            return this.entries.stream().map(WeightedList.Entry::getElement).filter(filter);
-        }
-        return super.stream();
+        return Arrays.stream(getFilteredView().elements());
     }
 
     public Stream<Entry<U>> entryStream() {
-        return this.entries.stream().filter(entry -> filter == null || filter.test(entry.getElement()));
+        return Arrays.stream(getFilteredView().entries());
+    }
+
+    /**
+     *  Passes each element that passes the filter (if any) to the specified action, along with its weight.
+     */
+    public void forEachWeighted(ObjIntConsumer<U> action) {
+
+        FilteredView<U> filteredView = getFilteredView();
+
+        U[] elements = filteredView.elements();
+        int[] weights = filteredView.weights();
+
+        for(int i = 0; i < elements.length; i++) {
+            action.accept(elements[i], weights[i]);
+        }
+
     }
 
     public void addAll(FilterableWeightedList<U> other) {
-        other.entryStream().forEach(entry -> add(entry.getElement(), ((WeightedListEntryAccessor)entry).getWeight()));
+        other.forEachWeighted(this::add);
     }
 
+    /**
+     *  Picks a random element that passes the filter (if any), with a probability proportional to its weight. This is a binary
+     *  search over the cumulative weights of the {@linkplain #getFilteredView() filtered view}, so it doesn't allocate. The filter
+     *  is assumed to give the same result for the same element until it's changed.
+     *
+     *  @throws NoSuchElementException if no element passes the filter.
+     */
     public U pickRandom(Random random) {
-        return pickRandom();
+
+        FilteredView<U> filteredView = getFilteredView();
+        int count = filteredView.elements().length;
+
+        if(count == 0) {
+            throw new NoSuchElementException("Cannot pick a random element from an empty weighted list.");
+        }
+
+        if(filteredView.totalWeight() <= 0) {
+            return filteredView.elements()[random.nextInt(count)];
+        }
+
+        long[] cumulativeWeights = filteredView.cumulativeWeights();
+        long target = random.nextLong(filteredView.totalWeight());
+
+        int low = 0;
+        int high = count - 1;
+
+        //  Find the first element whose cumulative weight is greater than the target
+        while(low < high) {
+
+            int middle = (low + high) >>> 1;
+
+            if(cumulativeWeights[middle] > target) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+
+        }
+
+        return filteredView.elements()[low];
+
     }
 
     public U pickRandom() {
-        return this.shuffle().stream().findFirst().orElseThrow(RuntimeException::new);
+        return pickRandom(ThreadLocalRandom.current());
     }
 
     public FilterableWeightedList<U> copy() {
@@ -63,4 +150,59 @@ public class FilterableWeightedList<U> extends WeightedList<U> {
         copied.addAll(this);
         return copied;
     }
+
+    /**
+     *  @return the entries that pass the filter (if any) as flat arrays, which are only recomputed once an entry is added, the
+     *  entries are reordered or the filter is changed.
+     */
+    @SuppressWarnings("unchecked")
+    private FilteredView<U> getFilteredView() {
+
+        int version = this.version;
+        FilteredView<U> filteredView = this.filteredView;
+
+        if(filteredView != null && filteredView.version() == version) {
+            return filteredView;
+        }
+
+        Entry<U>[] filteredEntries = this.entries
+            .stream()
+            .filter(entry -> filter == null || filter.test(entry.getElement()))
+            .toArray(Entry[]::new);
+
+        int count = filteredEntries.length;
+
+        U[] elements = (U[]) new Object[count];
+        int[] weights = new int[count];
+        long[] cumulativeWeights = new long[count];
+        long totalWeight = 0;
+
+        for(int i = 0; i < count; i++) {
+
+            Entry<U> entry = filteredEntries[i];
+            int weight = ((WeightedListEntryAccessor) entry).getWeight();
+
+            elements[i] = entry.getElement();
+            weights[i] = weight;
+
+            totalWeight += Math.max(0, weight);
+            cumulativeWeights[i] = totalWeight;
+
+        }
+
+        filteredView = new FilteredView<>(version, filteredEntries, elements, weights, cumulativeWeights, totalWeight);
+        this.filteredView = filteredView;
+
+        return filteredView;
+
+    }
+
+    /**
+     *  The entries that passed the filter in the specified version of the list, along with their elements, their weights and the
+     *  running totals of their weights.
+     */
+    private record FilteredView<U>(int version, Entry<U>[] entries, U[] elements, int[] weights, long[] cumulativeWeights, long totalWeight) {
+
+    }
+
 }
@@ -7,6 +7,7 @@ import com.mojang.serialization.Codec;
 import com.mojang.serialization.DataResult;
 import io.github.apace100.calio.access.ExtraShapedRecipeData;
 import io.github.apace100.calio.mixin.ShapedRecipeAccessor;
+import io.github.apace100.calio.network.SyncPacketByteBuf;
 import net.minecraft.entity.attribute.EntityAttributeModifier;
 import net.minecraft.entity.effect.StatusEffect;
 import net.minecraft.entity.effect.StatusEffectInstance;
@@ -151,8 +152,8 @@ public class SerializationHelper {
 
     public static StatusEffectInstance readStatusEffect(PacketByteBuf buf) {
         Identifier effect = buf.readIdentifier();
-        int duration = buf.readInt();
-        int amplifier = buf.readInt();
+        int duration = SyncPacketByteBuf.readSignedInt(buf);
+        int amplifier = SyncPacketByteBuf.readSignedInt(buf);
         boolean ambient = buf.readBoolean();
         boolean showParticles = buf.readBoolean();
         boolean showIcon = buf.readBoolean();
@@ -161,8 +162,8 @@ public class SerializationHelper {
 
     public static void writeStatusEffect(PacketByteBuf buf, StatusEffectInstance statusEffectInstance) {
         buf.writeIdentifier(Registries.STATUS_EFFECT.getId(statusEffectInstance.getEffectType()));
-        buf.writeInt(statusEffectInstance.getDuration());
-        buf.writeInt(statusEffectInstance.getAmplifier());
+        SyncPacketByteBuf.writeSignedInt(buf, statusEffectInstance.getDuration());
+        SyncPacketByteBuf.writeSignedInt(buf, statusEffectInstance.getAmplifier());
         buf.writeBoolean(statusEffectInstance.isAmbient());
         buf.writeBoolean(statusEffectInstance.shouldShowParticles());
         buf.writeBoolean(statusEffectInstance.shouldShowIcon());
@@ -2,21 +2,20 @@ package io.github.apace100.calio.data;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonParseException;
 import net.minecraft.resource.ResourceManager;
+import net.minecraft.resource.ResourceType;
 import net.minecraft.resource.SinglePreparationResourceReloader;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.Util;
 import net.minecraft.util.profiler.Profiler;
 import org.apache.commons.io.FilenameUtils;
 import org.quiltmc.parsers.json.JsonFormat;
-import org.quiltmc.parsers.json.JsonReader;
-import org.quiltmc.parsers.json.gson.GsonReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -43,39 +42,63 @@ public abstract class CalioJsonDataLoader extends SinglePreparationResourceReloa
     protected Map<Identifier, JsonElement> prepare(ResourceManager manager, Profiler profiler) {
 
         Map<Identifier, JsonElement> result = new HashMap<>();
-        manager.findResources(directoryName, this::hasValidExtension).forEach((fileId, resource) -> {
+        List<DataFile> dataFiles = new ArrayList<>();
+
+        ResourceIndex.forEach(manager, directoryName, this::hasValidExtension, (fileId, resources) -> {
 
             Identifier id = this.trim(fileId);
             String fileExtension = "." + FilenameUtils.getExtension(fileId.getPath());
 
+            //  Only the resource of the top pack is loaded, like JsonDataLoader does
             JsonFormat jsonFormat = VALID_EXTENSIONS.get(fileExtension);
-            String packName = resource.getResourcePackName();
+            dataFiles.add(new DataFile(fileId, id, jsonFormat, resources.get(resources.size() - 1), this.getResourceType()));
+
+        });
 
-            try (BufferedReader resourceReader = resource.getReader()) {
+        for (DataFile.Result parseResult : DataFile.parseAll(dataFiles, content -> content.parseNonNull(gson), this.parsesInParallel())) {
 
-                GsonReader gsonReader = new GsonReader(JsonReader.create(resourceReader, jsonFormat));
-                JsonElement jsonElement = gson.fromJson(gsonReader, JsonElement.class);
+            DataFile dataFile = parseResult.dataFile();
+            Identifier id = dataFile.id();
 
-                if (jsonElement == null) {
-                    throw new JsonParseException("JSON cannot be null! Caused by either the file being empty or a syntax error when being parsed by " + gsonReader);
+            try {
+
+                if (!parseResult.isSuccess()) {
+                    throw parseResult.exception();
                 }
 
-                JsonElement prevValue = result.put(id, jsonElement);
+                JsonElement prevValue = result.put(id, parseResult.jsonElement());
                 if (prevValue != null) {
                     throw new IllegalStateException("Duplicate data file ignored with ID " + id);
                 }
 
             } catch (Exception e) {
-                String filePath = packName + "/.../" + fileId.getNamespace() + "/" + fileId.getPath();
+                Identifier fileId = dataFile.fileId();
+                String filePath = dataFile.getPackName() + "/.../" + fileId.getNamespace() + "/" + fileId.getPath();
                 LOGGER.error("Couldn't parse data file \"{}\" from \"{}\": {}", id, filePath, e.getMessage());
             }
 
-        });
+        }
 
         return result;
 
     }
 
+    /**
+     *  The type of the resources this loader loads, which is used to read the data files of directory packs directly from disk.
+     *  Can be {@code null} if unknown, in which case every data file is read through its resource.
+     */
+    protected ResourceType getResourceType() {
+        return ResourceType.SERVER_DATA;
+    }
+
+    /**
+     *  Whether the data files are parsed concurrently on the main worker executor. The parsed data files are still collected
+     *  in the same order as when they are parsed serially.
+     */
+    protected boolean parsesInParallel() {
+        return false;
+    }
+
     protected Identifier trim(Identifier fileId) {
         String path = FilenameUtils.removeExtension(fileId.getPath()).substring(directoryName.length() + 1);
         return new Identifier(fileId.getNamespace(), path);
@@ -0,0 +1,324 @@
+package io.github.apace100.calio.data;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import io.github.apace100.calio.mixin.DirectoryResourcePackAccessor;
+import io.github.apace100.calio.util.OrderedParallel;
+import net.minecraft.resource.DirectoryResourcePack;
+import net.minecraft.resource.Resource;
+import net.minecraft.resource.ResourceType;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.Util;
+import org.jetbrains.annotations.Nullable;
+import org.quiltmc.parsers.json.JsonFormat;
+import org.quiltmc.parsers.json.JsonReader;
+import org.quiltmc.parsers.json.gson.GsonReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ *  A data file found by one of the JSON data loaders.
+ *
+ *  @param fileId       the identifier of the file, including the directory and the file extension
+ *  @param id           the identifier of the data, trimmed from {@code fileId}
+ *  @param jsonFormat   the JSON format the file is parsed as, determined by its file extension
+ *  @param resource     the resource the file is read from
+ *  @param resourceType the type of the resources the file is one of, which is used to locate the file if it's in a directory
+ *                      pack
+ */
+public record DataFile(Identifier fileId, Identifier id, JsonFormat jsonFormat, Resource resource, ResourceType resourceType) {
+
+    //  Buffers that grow larger than this are not kept in the pool
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> READ_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(16 * 1024));
+
+    public String getPackName() {
+        return resource.getResourcePackName();
+    }
+
+    /**
+     *  @return the parsed JSON element, or {@code null} if the file is empty.
+     */
+    @Nullable
+    public JsonElement parse(Gson gson) throws Exception {
+        return read(false).parse(gson);
+    }
+
+    /**
+     *  @return a hash of the contents of this file and the name of its pack, which changes whenever either of them does. Prefer
+     *  {@link #read(boolean)} if the file is parsed as well, which only reads it once for both.
+     */
+    public long hashContent() throws IOException {
+        return hash(readContent());
+    }
+
+    /**
+     *  @return a reader of the contents of this file, which are read at once and decoded as they're read. The reader is only valid
+     *  until the next file is read on the same thread (see {@link #read(boolean)}).
+     */
+    public Reader openReader() throws IOException {
+        return read(false).openReader();
+    }
+
+    /**
+     *  Reads the contents of this file once, so that they can be both hashed and parsed without reading the file again. The
+     *  contents are kept in a pooled buffer, so they're only valid until the next file is read on the same thread.
+     *
+     *  @param hash whether the contents are hashed (see {@link #hashContent()}) while they're read
+     */
+    public Content read(boolean hash) throws IOException {
+
+        ByteBuffer bytes = readContent();
+        OptionalLong contentHash = OptionalLong.empty();
+
+        if (hash) {
+            contentHash = OptionalLong.of(hash(bytes));
+        }
+
+        return new Content(this, bytes, contentHash);
+
+    }
+
+    private long hash(ByteBuffer bytes) {
+        return Hashing.murmur3_128().newHasher()
+            .putString(getPackName(), StandardCharsets.UTF_8)
+            .putBytes(bytes.duplicate())
+            .hash()
+            .asLong();
+    }
+
+    /**
+     *  Reads the contents of this file into a heap buffer. Files of directory packs are read directly from their file channel,
+     *  and files of other packs are read from their input stream. Files are never memory-mapped, as a mapped file stays locked
+     *  on Windows until the mapping is garbage collected. The returned buffer may be pooled, so it's only valid until the next
+     *  file is read on the same thread.
+     */
+    private ByteBuffer readContent() throws IOException {
+
+        Path path = getFilePath();
+        if (path == null) {
+            try (InputStream inputStream = resource.getInputStream()) {
+                return readFully(inputStream);
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("Data file \"" + fileId + "\" is too large (" + size + " bytes)");
+            }
+
+            ByteBuffer buffer = getReadBuffer((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    break;
+                }
+            }
+
+            return buffer.flip();
+
+        }
+
+    }
+
+    /**
+     *  @return the path of this file if it's in a directory pack, or {@code null} otherwise.
+     */
+    @Nullable
+    private Path getFilePath() {
+
+        if (resourceType == null || !(resource.getPack() instanceof DirectoryResourcePack directoryPack)) {
+            return null;
+        }
+
+        Path path = ((DirectoryResourcePackAccessor) directoryPack).getRoot()
+            .resolve(resourceType.getDirectory())
+            .resolve(fileId.getNamespace());
+
+        for (String segment : fileId.getPath().split("/")) {
+            path = path.resolve(segment);
+        }
+
+        return Files.isRegularFile(path)
+            ? path
+            : null;
+
+    }
+
+    private static ByteBuffer readFully(InputStream inputStream) throws IOException {
+
+        ByteBuffer buffer = getReadBuffer(0);
+        int read;
+
+        while ((read = inputStream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining())) != -1) {
+
+            buffer.position(buffer.position() + read);
+            if (!buffer.hasRemaining()) {
+                buffer = growReadBuffer(buffer, buffer.capacity() * 2);
+            }
+
+        }
+
+        return buffer.flip();
+
+    }
+
+    /**
+     *  @return the pooled buffer of the current thread, cleared and limited to the specified size (if it's not {@code 0}).
+     */
+    private static ByteBuffer getReadBuffer(int size) {
+
+        ByteBuffer buffer = READ_BUFFER.get().clear();
+        if (size > buffer.capacity()) {
+            buffer = growReadBuffer(buffer, size);
+        }
+
+        return size > 0
+            ? buffer.limit(size)
+            : buffer;
+
+    }
+
+    private static ByteBuffer growReadBuffer(ByteBuffer buffer, int capacity) {
+
+        ByteBuffer grownBuffer = ByteBuffer.allocate(capacity);
+        grownBuffer.put(buffer.flip());
+
+        if (capacity <= MAX_POOLED_BUFFER_SIZE) {
+            READ_BUFFER.set(grownBuffer);
+        }
+
+        return grownBuffer;
+
+    }
+
+    public JsonElement parseNonNull(Gson gson) throws Exception {
+        return read(false).parseNonNull(gson);
+    }
+
+    /**
+     *  Parses each of the specified data files with the specified function, either serially or concurrently on the main worker
+     *  executor.
+     *
+     *  @return the results, in the same order as the data files.
+     */
+    public static List<Result> parseAll(List<DataFile> dataFiles, Parser parser, boolean parallel) {
+        return parseAll(dataFiles, parser, parallel, false);
+    }
+
+    /**
+     *  Parses each of the specified data files with the specified function, either serially or concurrently on the main worker
+     *  executor. Each data file is read once, and its contents are hashed while they're read if {@code hashContent} is true.
+     *
+     *  @return the results, in the same order as the data files.
+     */
+    public static List<Result> parseAll(List<DataFile> dataFiles, Parser parser, boolean parallel, boolean hashContent) {
+
+        if (parallel && dataFiles.size() > 1) {
+            return OrderedParallel.map(dataFiles, dataFile -> dataFile.tryParse(parser, hashContent), Util.getMainWorkerExecutor());
+        }
+
+        List<Result> results = new ArrayList<>(dataFiles.size());
+        for (DataFile dataFile : dataFiles) {
+            results.add(dataFile.tryParse(parser, hashContent));
+        }
+
+        return results;
+
+    }
+
+    private Result tryParse(Parser parser, boolean hashContent) {
+
+        OptionalLong contentHash = OptionalLong.empty();
+
+        try {
+
+            Content content = read(hashContent);
+            contentHash = content.hash();
+
+            return new Result(this, parser.parse(content), null, contentHash);
+
+        } catch (Exception e) {
+            return new Result(this, null, e, contentHash);
+        }
+
+    }
+
+    @FunctionalInterface
+    public interface Parser {
+        JsonElement parse(Content content) throws Exception;
+    }
+
+    /**
+     *  The raw contents of a data file, which are decoded as UTF-8 as they're read, instead of into a copy of the whole file.
+     *
+     *  @param bytes    the contents, in a heap buffer that may be pooled (see {@link #read(boolean)})
+     *  @param hash     the hash of the contents (see {@link #hashContent()}), if they were hashed while they were read
+     */
+    public record Content(DataFile dataFile, ByteBuffer bytes, OptionalLong hash) {
+
+        /**
+         *  @return a new reader of the contents, which decodes them in small batches as they're read.
+         */
+        public Reader openReader() {
+            return new InputStreamReader(new ByteArrayInputStream(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining()), StandardCharsets.UTF_8);
+        }
+
+        /**
+         *  @return the parsed JSON element, or {@code null} if the contents are empty.
+         */
+        @Nullable
+        public JsonElement parse(Gson gson) throws Exception {
+            try (Reader resourceReader = openReader()) {
+                return gson.fromJson(new GsonReader(JsonReader.create(resourceReader, dataFile.jsonFormat())), JsonElement.class);
+            }
+        }
+
+        public JsonElement parseNonNull(Gson gson) throws Exception {
+            try (Reader resourceReader = openReader()) {
+
+                GsonReader gsonReader = new GsonReader(JsonReader.create(resourceReader, dataFile.jsonFormat()));
+                JsonElement jsonElement = gson.fromJson(gsonReader, JsonElement.class);
+
+                if (jsonElement == null) {
+                    throw new JsonParseException("JSON cannot be null! Caused by either the file being empty or a syntax error when being parsed by " + gsonReader);
+                }
+
+                return jsonElement;
+
+            }
+        }
+
+    }
+
+    /**
+     *  The result of parsing a data file; either the parsed JSON element, or the exception that was thrown while parsing it.
+     *
+     *  @param contentHash  the hash of the contents of the data file, if they were hashed (and could be read)
+     */
+    public record Result(DataFile dataFile, @Nullable JsonElement jsonElement, @Nullable Exception exception, OptionalLong contentHash) {
+
+        public boolean isSuccess() {
+            return exception == null;
+        }
+
+    }
+
+}
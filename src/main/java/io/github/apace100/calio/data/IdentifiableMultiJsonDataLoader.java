@@ -2,7 +2,6 @@ package io.github.apace100.calio.data;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonParseException;
 import net.minecraft.resource.ResourceManager;
 import net.minecraft.resource.ResourceType;
 import net.minecraft.resource.SinglePreparationResourceReloader;
@@ -11,12 +10,9 @@ import net.minecraft.util.Util;
 import net.minecraft.util.profiler.Profiler;
 import org.apache.commons.io.FilenameUtils;
 import org.quiltmc.parsers.json.JsonFormat;
-import org.quiltmc.parsers.json.JsonReader;
-import org.quiltmc.parsers.json.gson.GsonReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.util.*;
 
 /**
@@ -47,42 +43,63 @@ public abstract class IdentifiableMultiJsonDataLoader extends SinglePreparationR
     protected MultiJsonDataContainer prepare(ResourceManager manager, Profiler profiler) {
 
         MultiJsonDataContainer result = new MultiJsonDataContainer();
-        manager.findResources(directoryName, this::hasValidExtension).keySet().forEach(fileId -> {
+        List<DataFile> dataFiles = new ArrayList<>();
+
+        ResourceIndex.forEach(manager, directoryName, this::hasValidExtension, (fileId, resources) -> {
 
             Identifier id = this.trim(fileId);
             String fileExtension = "." + FilenameUtils.getExtension(fileId.getPath());
 
             JsonFormat jsonFormat = VALID_EXTENSIONS.get(fileExtension);
-            manager.getAllResources(fileId).forEach(resource -> {
+            resources.forEach(resource -> dataFiles.add(new DataFile(fileId, id, jsonFormat, resource, resourceType)));
+
+        });
 
-                String packName = resource.getResourcePackName();
-                try (BufferedReader resourceReader = resource.getReader()) {
+        for (DataFile.Result parseResult : DataFile.parseAll(dataFiles, content -> content.parseNonNull(gson), this.parsesInParallel(), this.hashesContent())) {
 
-                    GsonReader gsonReader = new GsonReader(JsonReader.create(resourceReader, jsonFormat));
-                    JsonElement jsonElement = gson.fromJson(gsonReader, JsonElement.class);
+            DataFile dataFile = parseResult.dataFile();
+            String packName = dataFile.getPackName();
 
-                    if (jsonElement == null) {
-                        throw new JsonParseException("JSON cannot be null! Caused by either the file being empty or a syntax error when being parsed by " + gsonReader);
-                    }
+            Identifier fileId = dataFile.fileId();
+            String filePath = packName + "/" + resourceType.getDirectory() + "/" + fileId.getNamespace() + "/" + fileId.getPath();
 
-                    result
-                        .computeIfAbsent(id, k -> new LinkedHashMap<>())
-                        .computeIfAbsent(packName, k -> new LinkedList<>())
-                        .add(jsonElement);
+            if (parseResult.isSuccess()) {
+                result
+                    .computeIfAbsent(dataFile.id(), k -> new LinkedHashMap<>())
+                    .computeIfAbsent(packName, k -> new LinkedList<>())
+                    .add(parseResult.jsonElement());
+            }
 
-                } catch (Exception e) {
-                    String filePath = packName + "/" + resourceType.getDirectory() + "/" + fileId.getNamespace() + "/" + fileId.getPath();
-                    LOGGER.error("Couldn't parse data file \"{}\" from \"{}\": {}", id, filePath, e.getMessage());
-                }
+            else {
+                LOGGER.error("Couldn't parse data file \"{}\" from \"{}\": {}", dataFile.id(), filePath, parseResult.exception().getMessage());
+                continue;
+            }
 
-            });
+            //  The contents are hashed while they're read for parsing, so that the data file isn't read again
+            parseResult.contentHash().ifPresent(contentHash -> result.addContentHash(dataFile.id(), contentHash));
 
-        });
+        }
 
         return result;
 
     }
 
+    /**
+     *  Whether the data files are parsed concurrently on the main worker executor. The parsed data files are still collected
+     *  in the same order as when they are parsed serially.
+     */
+    protected boolean parsesInParallel() {
+        return false;
+    }
+
+    /**
+     *  Whether the contents of the data files are hashed, so that {@link MultiJsonDataContainer#getContentHash(Identifier)} can be
+     *  used to only process the IDs whose data files have changed since the previous reload.
+     */
+    protected boolean hashesContent() {
+        return false;
+    }
+
     protected Identifier trim(Identifier fileId) {
         String path = FilenameUtils.removeExtension(fileId.getPath()).substring(directoryName.length() + 1);
         return new Identifier(fileId.getNamespace(), path);
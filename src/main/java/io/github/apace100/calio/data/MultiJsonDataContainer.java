@@ -1,13 +1,43 @@
 package io.github.apace100.calio.data;
 
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.google.gson.JsonElement;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 import net.minecraft.util.Identifier;
 
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.OptionalLong;
 
 public class MultiJsonDataContainer extends LinkedHashMap<Identifier, LinkedHashMap<String, List<JsonElement>>> {
 
+    //  The combined hash of the contents of the data files of each ID, if the loader hashes them (see
+    //  IdentifiableMultiJsonDataLoader#hashesContent)
+    private final Object2LongMap<Identifier> contentHashes = new Object2LongOpenHashMap<>();
+
+    void addContentHash(Identifier id, long contentHash) {
+
+        if (contentHashes.containsKey(id)) {
+            contentHash = Hashing.combineOrdered(List.of(HashCode.fromLong(contentHashes.getLong(id)), HashCode.fromLong(contentHash))).asLong();
+        }
+
+        contentHashes.put(id, contentHash);
+
+    }
+
+    /**
+     *  @return the combined hash of the contents of the data files of the specified ID (and the names of their packs), or an
+     *  empty optional if they weren't hashed. If it's the same as in the previous reload, the data of the ID hasn't changed, and
+     *  whatever was loaded from it can be reused.
+     */
+    public OptionalLong getContentHash(Identifier id) {
+        return contentHashes.containsKey(id)
+            ? OptionalLong.of(contentHashes.getLong(id))
+            : OptionalLong.empty();
+    }
+
     public void forEach(Processor processor) {
         super.forEach((id, packedJsonData) ->
             packedJsonData.forEach((packName, jsonElements) ->
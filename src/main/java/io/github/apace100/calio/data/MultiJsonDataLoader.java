@@ -4,18 +4,16 @@ import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonSyntaxException;
 import net.minecraft.resource.ResourceManager;
+import net.minecraft.resource.ResourceType;
 import net.minecraft.resource.SinglePreparationResourceReloader;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.Util;
 import net.minecraft.util.profiler.Profiler;
 import org.apache.commons.io.FilenameUtils;
 import org.quiltmc.parsers.json.JsonFormat;
-import org.quiltmc.parsers.json.JsonReader;
-import org.quiltmc.parsers.json.gson.GsonReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.util.*;
 
 /**
@@ -48,38 +46,63 @@ public abstract class MultiJsonDataLoader extends SinglePreparationResourceReloa
     protected Map<Identifier, List<JsonElement>> prepare(ResourceManager manager, Profiler profiler) {
 
         Map<Identifier, List<JsonElement>> result = new HashMap<>();
-        manager.findResources(directoryName, this::hasValidExtension).keySet().forEach(fileId -> {
+        List<DataFile> dataFiles = new ArrayList<>();
+
+        ResourceIndex.forEach(manager, directoryName, this::hasValidExtension, (fileId, resources) -> {
 
             Identifier id = trim(fileId);
             String fileExtension = "." + FilenameUtils.getExtension(fileId.getPath());
 
             JsonFormat jsonFormat = VALID_EXTENSIONS.get(fileExtension);
-            manager.getAllResources(fileId).forEach(resource -> {
+            resources.forEach(resource -> dataFiles.add(new DataFile(fileId, id, jsonFormat, resource, this.getResourceType())));
 
-                String packName = resource.getResourcePackName();
-                try (BufferedReader resourceReader = resource.getReader()) {
+        });
 
-                    if (jsonFormat == null) {
-                        throw new JsonSyntaxException("The file extension \"" + fileExtension + "\" is not supported");
-                    }
+        for (DataFile.Result parseResult : DataFile.parseAll(dataFiles, this::parse, this.parsesInParallel())) {
 
-                    GsonReader gsonReader = new GsonReader(JsonReader.create(resourceReader, jsonFormat));
-                    JsonElement jsonElement = gson.fromJson(gsonReader, JsonElement.class);
+            DataFile dataFile = parseResult.dataFile();
+            if (parseResult.isSuccess()) {
+                result.computeIfAbsent(dataFile.id(), k -> new LinkedList<>())
+                    .add(parseResult.jsonElement());
+            }
 
-                    result.computeIfAbsent(id, k -> new LinkedList<>())
-                        .add(jsonElement);
+            else {
+                Identifier fileId = dataFile.fileId();
+                String filePath = dataFile.getPackName() + "/.../" + fileId.getNamespace() + "/" + fileId.getPath();
+                LOGGER.error("Couldn't parse data file \"{}\" from \"{}\": {}", dataFile.id(), filePath, parseResult.exception().getMessage());
+            }
 
-                } catch (Exception e) {
-                    String filePath = packName + "/.../" + fileId.getNamespace() + "/" + fileId.getPath();
-                    LOGGER.error("Couldn't parse data file \"{}\" from \"{}\": {}", id, filePath, e.getMessage());
-                }
+        }
 
-            });
+        return result;
 
-        });
+    }
 
-        return result;
+    private JsonElement parse(DataFile.Content content) throws Exception {
+
+        DataFile dataFile = content.dataFile();
+        if (dataFile.jsonFormat() == null) {
+            throw new JsonSyntaxException("The file extension \"." + FilenameUtils.getExtension(dataFile.fileId().getPath()) + "\" is not supported");
+        }
+
+        return content.parse(gson);
+
+    }
+
+    /**
+     *  The type of the resources this loader loads, which is used to read the data files of directory packs directly from disk.
+     *  Can be {@code null} if unknown, in which case every data file is read through its resource.
+     */
+    protected ResourceType getResourceType() {
+        return ResourceType.SERVER_DATA;
+    }
 
+    /**
+     *  Whether the data files are parsed concurrently on the main worker executor. The parsed data files are still collected
+     *  in the same order as when they are parsed serially.
+     */
+    protected boolean parsesInParallel() {
+        return false;
     }
 
     private Identifier trim(Identifier id) {
@@ -0,0 +1,131 @@
+package io.github.apace100.calio.data;
+
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ *  <p>The context of the data that is currently being parsed on a thread, which is used for substituting the {@code *} in dynamic
+ *  identifiers (see {@link io.github.apace100.calio.util.DynamicIdentifier}). Data loaders should parse each data file within the
+ *  scope of its context, e.g:</p>
+ *
+ *  <pre>{@code
+ *  try (ParseContext.Scope scope = ParseContext.of(id).enter()) {
+ *      instance = serializableData.read(jsonObject);
+ *  }
+ *  }</pre>
+ *
+ *  <p>Unlike the deprecated {@link SerializableData#CURRENT_NAMESPACE} and {@link SerializableData#CURRENT_PATH}, this is safe to use
+ *  when parsing data on several threads at once. Those are still used as a fallback if the current thread is not in the scope of
+ *  any parse context, and are still set for the duration of each scope, so that code that reads them directly keeps working
+ *  (though only reliably while data is parsed on a single thread).</p>
+ */
+public final class ParseContext {
+
+    private static final ThreadLocal<ParseContext> CURRENT = new ThreadLocal<>();
+
+    private final String namespace;
+    private final String path;
+
+    private ParseContext(String namespace, String path) {
+        this.namespace = namespace;
+        this.path = path;
+    }
+
+    public static ParseContext of(Identifier id) {
+        return new ParseContext(id.getNamespace(), id.getPath());
+    }
+
+    /**
+     *  @return the parse context of the current thread, or {@code null} if the current thread is not in the scope of any.
+     */
+    @Nullable
+    public static ParseContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     *  @return the namespace of the parse context of the current thread, or {@link SerializableData#CURRENT_NAMESPACE} if the current
+     *  thread is not in the scope of any.
+     */
+    @Nullable
+    @SuppressWarnings("deprecation")
+    public static String currentNamespace() {
+        ParseContext current = CURRENT.get();
+        return current != null ? current.namespace : SerializableData.CURRENT_NAMESPACE;
+    }
+
+    /**
+     *  @return the path of the parse context of the current thread, or {@link SerializableData#CURRENT_PATH} if the current thread is
+     *  not in the scope of any.
+     */
+    @Nullable
+    @SuppressWarnings("deprecation")
+    public static String currentPath() {
+        ParseContext current = CURRENT.get();
+        return current != null ? current.path : SerializableData.CURRENT_PATH;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     *  Makes this the parse context of the current thread until the returned scope is closed, after which the previous parse
+     *  context of the current thread is restored. Should be used with a try-with-resources statement. The deprecated
+     *  {@link SerializableData#CURRENT_NAMESPACE} and {@link SerializableData#CURRENT_PATH} are set and restored along with it.
+     */
+    @SuppressWarnings("deprecation")
+    public Scope enter() {
+
+        ParseContext previous = CURRENT.get();
+        Scope scope = new Scope(previous, SerializableData.CURRENT_NAMESPACE, SerializableData.CURRENT_PATH);
+
+        CURRENT.set(this);
+        SerializableData.CURRENT_NAMESPACE = namespace;
+        SerializableData.CURRENT_PATH = path;
+
+        return scope;
+
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        @Nullable
+        private final ParseContext previous;
+
+        @Nullable
+        private final String previousNamespace;
+
+        @Nullable
+        private final String previousPath;
+
+        private Scope(@Nullable ParseContext previous, @Nullable String previousNamespace, @Nullable String previousPath) {
+            this.previous = previous;
+            this.previousNamespace = previousNamespace;
+            this.previousPath = previousPath;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void close() {
+
+            SerializableData.CURRENT_NAMESPACE = previousNamespace;
+            SerializableData.CURRENT_PATH = previousPath;
+
+            if (previous != null) {
+                CURRENT.set(previous);
+            }
+
+            else {
+                CURRENT.remove();
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,245 @@
+package io.github.apace100.calio.data;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.github.apace100.calio.network.SyncPacketByteBuf;
+import net.minecraft.network.PacketByteBuf;
+
+import java.io.IOException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ *  A {@link SerializableDataType} of a primitive value. Fields of these types are stored unboxed in the primitive side-array of
+ *  a {@link SerializableData.Instance}, encoded as the raw bits of the value, so that reading, receiving, sending and getting them
+ *  via the primitive getters (e.g: {@link SerializableData.Instance#getInt(String)}) doesn't allocate.
+ */
+public abstract class PrimitiveDataType<T> extends SerializableDataType<T> {
+
+    protected PrimitiveDataType(Class<T> dataClass, BiConsumer<PacketByteBuf, T> send, Function<PacketByteBuf, T> receive, Function<JsonElement, T> read, Function<T, JsonElement> write) {
+        super(dataClass, send, receive, read, write);
+    }
+
+    /**
+     *  @return whether the specified value can be stored as the raw bits of this type.
+     */
+    public abstract boolean accepts(Object value);
+
+    public abstract long toBits(Object value);
+
+    public abstract T fromBits(long bits);
+
+    public abstract long receiveBits(PacketByteBuf buffer);
+
+    public abstract void sendBits(PacketByteBuf buffer, long bits);
+
+    public abstract long readBits(JsonElement jsonElement);
+
+    /**
+     *  Reads the raw bits of the next value of the specified reader. Only reads a JSON element if the value can't be read from
+     *  its token directly.
+     */
+    public long readBits(JsonReader reader) throws IOException {
+        return readBits(JsonParser.parseReader(reader));
+    }
+
+    public static final class OfInt extends PrimitiveDataType<Integer> {
+
+        public OfInt() {
+            super(Integer.class, SyncPacketByteBuf::writeSignedInt, SyncPacketByteBuf::readSignedInt, JsonElement::getAsInt, JsonPrimitive::new);
+        }
+
+        @Override
+        public boolean accepts(Object value) {
+            return value instanceof Integer;
+        }
+
+        @Override
+        public long toBits(Object value) {
+            return (Integer) value;
+        }
+
+        @Override
+        public Integer fromBits(long bits) {
+            return (int) bits;
+        }
+
+        @Override
+        public long receiveBits(PacketByteBuf buffer) {
+            return SyncPacketByteBuf.readSignedInt(buffer);
+        }
+
+        @Override
+        public void sendBits(PacketByteBuf buffer, long bits) {
+            SyncPacketByteBuf.writeSignedInt(buffer, (int) bits);
+        }
+
+        @Override
+        public long readBits(JsonElement jsonElement) {
+            return jsonElement.getAsInt();
+        }
+
+        @Override
+        public long readBits(JsonReader reader) throws IOException {
+
+            if (reader.peek() != JsonToken.NUMBER) {
+                return super.readBits(reader);
+            }
+
+            LazilyParsedNumber number = new LazilyParsedNumber(reader.nextString());
+            return number.intValue();
+
+        }
+
+    }
+
+    public static final class OfFloat extends PrimitiveDataType<Float> {
+
+        public OfFloat() {
+            super(Float.class, PacketByteBuf::writeFloat, PacketByteBuf::readFloat, JsonElement::getAsFloat, JsonPrimitive::new);
+        }
+
+        @Override
+        public boolean accepts(Object value) {
+            return value instanceof Float;
+        }
+
+        @Override
+        public long toBits(Object value) {
+            return Float.floatToRawIntBits((Float) value);
+        }
+
+        @Override
+        public Float fromBits(long bits) {
+            return Float.intBitsToFloat((int) bits);
+        }
+
+        @Override
+        public long receiveBits(PacketByteBuf buffer) {
+            return buffer.readInt();
+        }
+
+        @Override
+        public void sendBits(PacketByteBuf buffer, long bits) {
+            buffer.writeInt((int) bits);
+        }
+
+        @Override
+        public long readBits(JsonElement jsonElement) {
+            return Float.floatToRawIntBits(jsonElement.getAsFloat());
+        }
+
+        @Override
+        public long readBits(JsonReader reader) throws IOException {
+
+            if (reader.peek() != JsonToken.NUMBER) {
+                return super.readBits(reader);
+            }
+
+            LazilyParsedNumber number = new LazilyParsedNumber(reader.nextString());
+            return Float.floatToRawIntBits(number.floatValue());
+
+        }
+
+    }
+
+    public static final class OfDouble extends PrimitiveDataType<Double> {
+
+        public OfDouble() {
+            super(Double.class, PacketByteBuf::writeDouble, PacketByteBuf::readDouble, JsonElement::getAsDouble, JsonPrimitive::new);
+        }
+
+        @Override
+        public boolean accepts(Object value) {
+            return value instanceof Double;
+        }
+
+        @Override
+        public long toBits(Object value) {
+            return Double.doubleToRawLongBits((Double) value);
+        }
+
+        @Override
+        public Double fromBits(long bits) {
+            return Double.longBitsToDouble(bits);
+        }
+
+        @Override
+        public long receiveBits(PacketByteBuf buffer) {
+            return buffer.readLong();
+        }
+
+        @Override
+        public void sendBits(PacketByteBuf buffer, long bits) {
+            buffer.writeLong(bits);
+        }
+
+        @Override
+        public long readBits(JsonElement jsonElement) {
+            return Double.doubleToRawLongBits(jsonElement.getAsDouble());
+        }
+
+        @Override
+        public long readBits(JsonReader reader) throws IOException {
+
+            if (reader.peek() != JsonToken.NUMBER) {
+                return super.readBits(reader);
+            }
+
+            LazilyParsedNumber number = new LazilyParsedNumber(reader.nextString());
+            return Double.doubleToRawLongBits(number.doubleValue());
+
+        }
+
+    }
+
+    public static final class OfBoolean extends PrimitiveDataType<Boolean> {
+
+        public OfBoolean() {
+            super(Boolean.class, PacketByteBuf::writeBoolean, PacketByteBuf::readBoolean, JsonElement::getAsBoolean, JsonPrimitive::new);
+        }
+
+        @Override
+        public boolean accepts(Object value) {
+            return value instanceof Boolean;
+        }
+
+        @Override
+        public long toBits(Object value) {
+            return (Boolean) value ? 1L : 0L;
+        }
+
+        @Override
+        public Boolean fromBits(long bits) {
+            return bits != 0L;
+        }
+
+        @Override
+        public long receiveBits(PacketByteBuf buffer) {
+            return buffer.readBoolean() ? 1L : 0L;
+        }
+
+        @Override
+        public void sendBits(PacketByteBuf buffer, long bits) {
+            buffer.writeBoolean(bits != 0L);
+        }
+
+        @Override
+        public long readBits(JsonElement jsonElement) {
+            return jsonElement.getAsBoolean() ? 1L : 0L;
+        }
+
+        @Override
+        public long readBits(JsonReader reader) throws IOException {
+            return reader.peek() == JsonToken.BOOLEAN
+                ? (reader.nextBoolean() ? 1L : 0L)
+                : super.readBits(reader);
+        }
+
+    }
+
+}
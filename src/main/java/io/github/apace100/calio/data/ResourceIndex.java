@@ -0,0 +1,42 @@
+package io.github.apace100.calio.data;
+
+import net.minecraft.resource.Resource;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.util.Identifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ *  <p>Finds the resources of the data files of the Calio loaders. Each loader finds its directory in every pack once (along with
+ *  every resource of each file, in pack order), instead of walking the packs for its directory and then looking up the resources
+ *  of each file.</p>
+ *
+ *  <p>Nothing is cached across loaders, as every loader queries a different directory.</p>
+ */
+public final class ResourceIndex {
+
+    private ResourceIndex() {
+
+    }
+
+    /**
+     *  @return every resource of every file in the specified directory (and its subdirectories) of the specified resource manager
+     *  that matches the specified filter, by the IDs of the files. The resources of each file are in pack order, with the resource
+     *  of the top pack last.
+     */
+    public static Map<Identifier, List<Resource>> findAll(ResourceManager manager, String directory, Predicate<Identifier> filter) {
+        return manager.findAllResources(directory, filter);
+    }
+
+    /**
+     *  Passes every file in the specified directory of the specified resource manager that matches the specified filter to the
+     *  specified consumer, along with its resources.
+     */
+    public static void forEach(ResourceManager manager, String directory, Predicate<Identifier> filter, BiConsumer<Identifier, List<Resource>> consumer) {
+        findAll(manager, directory, filter).forEach(consumer);
+    }
+
+}
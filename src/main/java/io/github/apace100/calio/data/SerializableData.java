@@ -1,75 +1,269 @@
 package io.github.apace100.calio.data;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
 import io.github.apace100.calio.Calio;
+import io.github.apace100.calio.network.SyncPacketByteBuf;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import net.minecraft.entity.attribute.EntityAttributeModifier;
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 @SuppressWarnings("unused")
 public class SerializableData {
 
-    // Should be set to the current namespace of the file that is being read. Allows using * in identifiers.
+    /**
+     *  @deprecated not thread-safe; use {@link ParseContext#enter()} instead. Only used for substituting {@code *} in identifiers
+     *  if the current thread is not in the scope of any {@link ParseContext}.
+     */
+    @Deprecated
     public static String CURRENT_NAMESPACE;
 
-    // Should be set to the current path of the file that is being read. Allows using * in identifiers.
+    /**
+     *  @deprecated not thread-safe; use {@link ParseContext#enter()} instead. Only used for substituting {@code *} in identifiers
+     *  if the current thread is not in the scope of any {@link ParseContext}.
+     */
+    @Deprecated
     public static String CURRENT_PATH;
 
+    // Whether serializable data use a generated codec by default. Can be enabled with the "calio.generateDataCodecs" system property.
+    private static final boolean GENERATE_CODECS = Boolean.getBoolean("calio.generateDataCodecs");
+
     private final LinkedHashMap<String, Field<?>> dataFields = new LinkedHashMap<>();
 
+    //  The compiled layout of the fields; each field is assigned an integer slot in the order it was added. The slot of a
+    //  field never changes once assigned, so instances and field handles created before more fields are added stay valid.
+    private final Object2IntOpenHashMap<String> fieldSlots = new Object2IntOpenHashMap<>();
+    private String[] slotNames = new String[0];
+    private Field<?>[] slotFields = new Field<?>[0];
+
+    private Boolean generateCodec;
+    private volatile SerializableDataCodec codec;
+    private volatile boolean codecFailed;
+
+    private volatile PresenceLayout presenceLayout;
+
+    public SerializableData() {
+        this.fieldSlots.defaultReturnValue(-1);
+    }
+
     public SerializableData add(String name, SerializableDataType<?> type) {
-        dataFields.put(name, new Field<>(type));
-        return this;
+        return addField(name, new Field<>(type));
     }
 
     public <T> SerializableData add(String name, SerializableDataType<T> type, T defaultValue) {
-        dataFields.put(name, new Field<>(type, defaultValue));
-        return this;
+        return addField(name, new Field<>(type, defaultValue));
     }
 
     public <T> SerializableData addFunctionedDefault(String name, SerializableDataType<T> type, Function<Instance, T> defaultFunction) {
-        dataFields.put(name, new Field<>(type, defaultFunction));
+        return addField(name, new Field<>(type, defaultFunction));
+    }
+
+    /**
+     *  <p>Opts this data in or out of using a generated codec, which reads and writes the fields of this data with a class that is
+     *  generated for it at first use, instead of iterating over them. Falls back to the interpreted methods if the generation fails.</p>
+     *
+     *  <p>Defaults to the {@code calio.generateDataCodecs} system property.</p>
+     */
+    public SerializableData generateCodec(boolean generateCodec) {
+        this.generateCodec = generateCodec;
+        return this;
+    }
+
+    private SerializableData addField(String name, Field<?> field) {
+
+        this.codec = null;
+        this.codecFailed = false;
+        this.presenceLayout = null;
+
+        dataFields.put(name, field);
+        int slot = fieldSlots.getInt(name);
+
+        if (slot != -1) {
+            Field<?>[] fields = Arrays.copyOf(slotFields, slotFields.length);
+            fields[slot] = field;
+            slotFields = fields;
+            return this;
+        }
+
+        slot = slotFields.length;
+
+        String[] names = Arrays.copyOf(slotNames, slot + 1);
+        Field<?>[] fields = Arrays.copyOf(slotFields, slot + 1);
+
+        names[slot] = name;
+        fields[slot] = field;
+
+        fieldSlots.put(name, slot);
+        slotNames = names;
+        slotFields = fields;
+
         return this;
+
     }
 
     public void write(PacketByteBuf buffer, Instance instance) {
-        dataFields.forEach((name, field) -> {
+
+        checkOwner(instance);
+        if (SyncPacketByteBuf.usesPresenceHeader(buffer)) {
+            writeWithHeader(buffer, instance);
+            return;
+        }
+
+        SerializableDataCodec codec = getCodec();
+        if (codec != null) {
+            codec.write(buffer, instance);
+            return;
+        }
+
+        String[] names = slotNames;
+        Field<?>[] fields = slotFields;
+        PresenceLayout layout = getPresenceLayout();
+
+        for (int slot = 0; slot < fields.length; slot++) {
+
+            Field<?> field = fields[slot];
             try {
 
-                boolean isPresent = instance.get(name) != null;
-                if (field.hasDefault() && field.getDefault(instance) == null) {
+                boolean isPresent = instance.hasValue(slot);
+                if (hasPresenceFlag(layout.presenceFlags()[slot], field, instance)) {
                     buffer.writeBoolean(isPresent);
                 }
 
-                if (isPresent) {
-                    field.dataType.send(buffer, instance.get(name));
+                if (!isPresent) {
+                    continue;
+                }
+
+                if (field.dataType instanceof PrimitiveDataType<?> primitiveType && instance.isPrimitive(slot)) {
+                    primitiveType.sendBits(buffer, instance.getBits(slot));
+                } else {
+                    field.dataType.send(buffer, instance.get(slot));
                 }
 
             } catch(DataException e) {
-                throw e.prepend(name);
+                throw e.prepend(names[slot]);
             } catch(Exception e) {
-                throw new DataException(DataException.Phase.WRITING, name, e);
+                throw new DataException(DataException.Phase.WRITING, names[slot], e);
+            }
+
+        }
+
+    }
+
+    /**
+     *  Writes the specified instance with a presence header (see {@link SyncPacketByteBuf#usesPresenceHeader(PacketByteBuf)}).
+     *  Instead of a boolean per field, the presence of every field with a default value and the value of every boolean field are
+     *  packed into a header in front of the other fields, whose layout is determined by the schema alone (see {@link
+     *  PresenceLayout}), so that no default has to be evaluated.
+     */
+    private void writeWithHeader(PacketByteBuf buffer, Instance instance) {
+
+        String[] names = slotNames;
+        Field<?>[] fields = slotFields;
+        PresenceLayout layout = getPresenceLayout();
+
+        long[] header = new long[layout.wordCount()];
+        long presentSlots = 0L;
+
+        for (int slot = 0; slot < fields.length; slot++) {
+
+            int presenceBit = layout.presenceBits()[slot];
+            int valueBit = layout.valueBits()[slot];
+
+            try {
+
+                boolean isPresent = instance.hasValue(slot);
+                if (isPresent && presenceBit != -1) {
+                    header[presenceBit >>> 6] |= 1L << presenceBit;
+                }
+
+                if (isPresent && valueBit != -1 && instance.getBoolean(slot)) {
+                    header[valueBit >>> 6] |= 1L << valueBit;
+                }
+
+                if (isPresent && valueBit == -1 && slot < Long.SIZE) {
+                    presentSlots |= 1L << slot;
+                }
+
+            } catch (DataException e) {
+                throw e.prepend(names[slot]);
+            } catch (Exception e) {
+                throw new DataException(DataException.Phase.WRITING, names[slot], e);
+            }
+
+        }
+
+        for (long word : header) {
+            buffer.writeVarLong(word);
+        }
+
+        for (int slot = 0; slot < fields.length; slot++) {
+
+            Field<?> field = fields[slot];
+            if (layout.valueBits()[slot] != -1) {
+                continue;
             }
-        });
+
+            try {
+
+                boolean isPresent = slot < Long.SIZE
+                    ? (presentSlots & (1L << slot)) != 0
+                    : instance.hasValue(slot);
+
+                if (!isPresent) {
+                    continue;
+                }
+
+                if (field.dataType instanceof PrimitiveDataType<?> primitiveType && instance.isPrimitive(slot)) {
+                    primitiveType.sendBits(buffer, instance.getBits(slot));
+                } else {
+                    field.dataType.send(buffer, instance.get(slot));
+                }
+
+            } catch (DataException e) {
+                throw e.prepend(names[slot]);
+            } catch (Exception e) {
+                throw new DataException(DataException.Phase.WRITING, names[slot], e);
+            }
+
+        }
+
     }
 
     public <T> JsonObject write(Instance instance) {
 
+        checkOwner(instance);
         JsonObject jsonObject = new JsonObject();
-        dataFields.forEach((name, field) -> instance.ifPresent(name, o -> {
+
+        String[] names = slotNames;
+        Field<?>[] fields = slotFields;
+
+        for (int slot = 0; slot < fields.length; slot++) {
+
+            if (!instance.isPresent(slot)) {
+                continue;
+            }
+
+            Object o = instance.get(slot);
             try {
-                jsonObject.add(name, field.dataType.writeUnsafely(o));
+                jsonObject.add(names[slot], fields[slot].dataType.writeUnsafely(o));
             } catch (Exception e) {
-                Calio.LOGGER.error("There was a problem serializing field {} with data type {} to JSON (skipping): {}", name, o.getClass(), e.getMessage());
+                Calio.LOGGER.error("There was a problem serializing field {} with data type {} to JSON (skipping): {}", names[slot], o.getClass(), e.getMessage());
             }
-        }));
+
+        }
 
         return jsonObject;
 
@@ -77,23 +271,92 @@ public class SerializableData {
 
     public Instance read(PacketByteBuf buffer) {
 
+        if (SyncPacketByteBuf.usesPresenceHeader(buffer)) {
+            return readWithHeader(buffer);
+        }
+
+        SerializableDataCodec codec = getCodec();
+        if (codec != null) {
+            return codec.read(buffer);
+        }
+
         Instance instance = new Instance();
-        dataFields.forEach((name, field) -> {
+
+        String[] names = slotNames;
+        Field<?>[] fields = slotFields;
+        PresenceLayout layout = getPresenceLayout();
+
+        for (int slot = 0; slot < fields.length; slot++) {
+
+            Field<?> field = fields[slot];
             try {
 
                 boolean isPresent = true;
-                if (field.hasDefault() && field.getDefault(instance) == null) {
+                if (hasPresenceFlag(layout.presenceFlags()[slot], field, instance)) {
                     isPresent = buffer.readBoolean();
                 }
 
-                instance.set(name, isPresent ? field.dataType.receive(buffer) : null);
+                if (!isPresent) {
+                    instance.set(slot, null);
+                } else if (field.dataType instanceof PrimitiveDataType<?> primitiveType) {
+                    instance.setBits(slot, primitiveType.receiveBits(buffer));
+                } else {
+                    instance.set(slot, field.dataType.receive(buffer));
+                }
 
             } catch (DataException e) {
-                throw e.prepend(name);
+                throw e.prepend(names[slot]);
             } catch (Exception e) {
-                throw new DataException(DataException.Phase.RECEIVING, name, e);
+                throw new DataException(DataException.Phase.RECEIVING, names[slot], e);
             }
-        });
+
+        }
+
+        return instance;
+
+    }
+
+    private Instance readWithHeader(PacketByteBuf buffer) {
+
+        Instance instance = new Instance();
+
+        String[] names = slotNames;
+        Field<?>[] fields = slotFields;
+        PresenceLayout layout = getPresenceLayout();
+
+        long[] header = new long[layout.wordCount()];
+        for (int i = 0; i < header.length; i++) {
+            header[i] = buffer.readVarLong();
+        }
+
+        for (int slot = 0; slot < fields.length; slot++) {
+
+            Field<?> field = fields[slot];
+            int presenceBit = layout.presenceBits()[slot];
+            int valueBit = layout.valueBits()[slot];
+
+            try {
+
+                boolean isPresent = presenceBit == -1
+                    || (header[presenceBit >>> 6] & (1L << presenceBit)) != 0;
+
+                if (!isPresent) {
+                    instance.set(slot, null);
+                } else if (valueBit != -1) {
+                    instance.setBits(slot, (header[valueBit >>> 6] & (1L << valueBit)) != 0 ? 1L : 0L);
+                } else if (field.dataType instanceof PrimitiveDataType<?> primitiveType) {
+                    instance.setBits(slot, primitiveType.receiveBits(buffer));
+                } else {
+                    instance.set(slot, field.dataType.receive(buffer));
+                }
+
+            } catch (DataException e) {
+                throw e.prepend(names[slot]);
+            } catch (Exception e) {
+                throw new DataException(DataException.Phase.RECEIVING, names[slot], e);
+            }
+
+        }
 
         return instance;
 
@@ -101,14 +364,115 @@ public class SerializableData {
 
     public Instance read(JsonObject jsonObject) {
 
+        SerializableDataCodec codec = getCodec();
+        if (codec != null) {
+            return codec.read(jsonObject);
+        }
+
         Instance instance = new Instance();
-        dataFields.forEach((name, field) -> {
+
+        String[] names = slotNames;
+        Field<?>[] fields = slotFields;
+
+        for (int slot = 0; slot < fields.length; slot++) {
+
+            String name = names[slot];
+            Field<?> field = fields[slot];
+
             try {
 
-                if (jsonObject.has(name)) {
-                    instance.set(name, field.dataType.read(jsonObject.get(name)));
+                JsonElement jsonElement = jsonObject.get(name);
+                if (jsonElement != null && field.dataType instanceof PrimitiveDataType<?> primitiveType) {
+                    instance.setBits(slot, primitiveType.readBits(jsonElement));
+                } else if (jsonElement != null) {
+                    instance.set(slot, field.dataType.read(jsonElement));
                 } else if (field.hasDefault()) {
-                    instance.set(name, field.getDefault(instance));
+                    instance.set(slot, field.getDefault(instance));
+                } else {
+                    throw new JsonSyntaxException("JSON requires field: " + name);
+                }
+
+            } catch (DataException e) {
+                throw e.prepend(name);
+            } catch (Exception e) {
+                throw new DataException(DataException.Phase.READING, name, e);
+            }
+
+        }
+
+        return instance;
+
+    }
+
+    /**
+     *  Reads the next JSON object of the specified reader into an instance, binding the value of each field as it is encountered
+     *  instead of reading the whole object into a {@link JsonObject} first.
+     */
+    public Instance read(JsonReader reader) throws IOException {
+        reader.beginObject();
+        return readFields(reader, null);
+    }
+
+    /**
+     *  Reads the remaining fields of the JSON object the specified reader is currently in (including its end) into an instance.
+     *  Fields that are absent are set to their default after the whole object has been read.
+     *
+     *  @param extraFieldReader reads the values of names that aren't fields of this data. If {@code null} or if it didn't read the
+     *                          value, the value is skipped.
+     */
+    public Instance readFields(JsonReader reader, @Nullable ExtraFieldReader extraFieldReader) throws IOException {
+
+        Instance instance = new Instance();
+
+        String[] names = slotNames;
+        Field<?>[] fields = slotFields;
+
+        while (reader.hasNext()) {
+
+            String name = reader.nextName();
+            int slot = getSlot(name);
+
+            if (slot == -1 || slot >= fields.length) {
+
+                if (extraFieldReader == null || !extraFieldReader.read(name, reader)) {
+                    reader.skipValue();
+                }
+
+                continue;
+
+            }
+
+            Field<?> field = fields[slot];
+            try {
+
+                if (field.dataType instanceof PrimitiveDataType<?> primitiveType) {
+                    instance.setBits(slot, primitiveType.readBits(reader));
+                } else {
+                    instance.set(slot, field.dataType.read(reader));
+                }
+
+            } catch (DataException e) {
+                throw e.prepend(name);
+            } catch (Exception e) {
+                throw new DataException(DataException.Phase.READING, name, e);
+            }
+
+        }
+
+        reader.endObject();
+        for (int slot = 0; slot < fields.length; slot++) {
+
+            if (instance.isSet(slot)) {
+                continue;
+            }
+
+            String name = names[slot];
+            Field<?> field = fields[slot];
+
+            try {
+
+                if (field.hasDefault()) {
+                    instance.set(slot, field.getDefault(instance));
                 } else {
                     throw new JsonSyntaxException("JSON requires field: " + name);
                 }
@@ -118,7 +482,8 @@ public class SerializableData {
             } catch (Exception e) {
                 throw new DataException(DataException.Phase.READING, name, e);
             }
-        });
+
+        }
 
         return instance;
 
@@ -127,12 +492,72 @@ public class SerializableData {
     public SerializableData copy() {
 
         SerializableData copy = new SerializableData();
-        copy.dataFields.putAll(dataFields);
+        dataFields.forEach(copy::addField);
+
+        copy.generateCodec = this.generateCodec;
 
         return copy;
 
     }
 
+    /**
+     *  Checks that the specified instance was created by this data, as the slots of its values are only meaningful to the data
+     *  that created it.
+     */
+    private void checkOwner(Instance instance) {
+        if (instance.getSerializableData() != this) {
+            throw new IllegalArgumentException("Tried to write a data instance that belongs to a different serializable data.");
+        }
+    }
+
+    @Nullable
+    private SerializableDataCodec getCodec() {
+
+        if (codecFailed || !(generateCodec != null ? generateCodec : GENERATE_CODECS)) {
+            return null;
+        }
+
+        SerializableDataCodec codec = this.codec;
+        if (codec != null) {
+            return codec;
+        }
+
+        try {
+            codec = SerializableDataCodecGenerator.generate(this, slotNames, slotFields, getPresenceLayout());
+            this.codec = codec;
+        } catch (Exception | LinkageError e) {
+            Calio.LOGGER.warn("Couldn't generate codec for serializable data with fields {}, using interpreted (de)serialization instead: {}", dataFields.keySet(), e.toString());
+            this.codecFailed = true;
+        }
+
+        return codec;
+
+    }
+
+    /**
+     *  @return whether a presence flag is written in front of the specified field of the specified instance, which is the case
+     *  if the default of the field is {@code null}. Only a default function is evaluated for that.
+     */
+    private static boolean hasPresenceFlag(PresenceFlag presenceFlag, Field<?> field, Instance instance) {
+        return switch (presenceFlag) {
+            case NONE -> false;
+            case ALWAYS -> true;
+            case DYNAMIC -> field.getDefault(instance) == null;
+        };
+    }
+
+    private PresenceLayout getPresenceLayout() {
+
+        PresenceLayout layout = this.presenceLayout;
+        if (layout == null) {
+            layout = PresenceLayout.of(slotFields);
+            this.presenceLayout = layout;
+        }
+
+        return layout;
+
+    }
+
     public Iterable<String> getFieldNames() {
         return ImmutableSet.copyOf(dataFields.keySet());
     }
@@ -145,23 +570,159 @@ public class SerializableData {
         }
     }
 
+    /**
+     *  @return the number of fields (and thus slots) of this data.
+     */
+    public int getFieldCount() {
+        return slotFields.length;
+    }
+
+    /**
+     *  @return the slot of the field with the specified name, or {@code -1} if this data contains no such field.
+     */
+    public int getSlot(String fieldName) {
+        return fieldSlots.getInt(fieldName);
+    }
+
+    public String getFieldName(int slot) {
+        return slotNames[slot];
+    }
+
+    public Field<?> getField(int slot) {
+        return slotFields[slot];
+    }
+
+    /**
+     *  Returns a typed handle of the field with the specified name, which accesses the values of {@link Instance instances}
+     *  of this data by its slot instead of its name. Handles are meant to be obtained once and stored, e.g: in a static field.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> FieldHandle<T> getHandle(String fieldName) {
+
+        int slot = getSlot(fieldName);
+        if (slot == -1) {
+            throw new IllegalArgumentException("SerializableData contains no field with name \"" + fieldName + "\".");
+        }
+
+        return new FieldHandle<>(slot, fieldName, (Field<T>) slotFields[slot]);
+
+    }
+
+    @FunctionalInterface
+    public interface ExtraFieldReader {
+
+        /**
+         *  @return whether the value of the field was read.
+         */
+        boolean read(String name, JsonReader reader) throws IOException;
+
+    }
+
     public class Instance {
 
-        private final HashMap<String, Object> data = new HashMap<>();
+        private Object[] values;
+        private long[] setSlots;
 
-        public boolean isPresent(String name) {
+        //  Holds the raw bits of the values of fields with a primitive data type, see PrimitiveDataType
+        private long[] primitives;
+        private long[] primitiveSlots;
 
-            if (dataFields.containsKey(name)) {
+        //  Holds values set under names that aren't fields of this data
+        private Map<String, Object> extraData;
 
-                Field<?> field = dataFields.get(name);
+        public Instance() {
+            int size = slotFields.length;
+            this.values = new Object[size];
+            this.setSlots = new long[(size + 63) >>> 6];
+            this.primitiveSlots = new long[setSlots.length];
+        }
 
-                if (field.hasDefault() && field.getDefault(this) == null) {
-                    return get(name) != null;
-                }
+        private SerializableData getSerializableData() {
+            return SerializableData.this;
+        }
+
+        private boolean isSet(int slot) {
+            return slot < values.length
+                && (setSlots[slot >>> 6] & (1L << slot)) != 0;
+        }
+
+        private void ensureCapacity(int slot) {
+
+            if (slot < values.length) {
+                return;
+            }
+
+            int size = Math.max(slot + 1, slotFields.length);
+
+            this.values = Arrays.copyOf(values, size);
+            this.setSlots = Arrays.copyOf(setSlots, (size + 63) >>> 6);
+            this.primitiveSlots = Arrays.copyOf(primitiveSlots, setSlots.length);
+
+            if (primitives != null) {
+                this.primitives = Arrays.copyOf(primitives, size);
+            }
+
+        }
+
+        boolean isPrimitive(int slot) {
+            return slot < values.length
+                && (primitiveSlots[slot >>> 6] & (1L << slot)) != 0;
+        }
 
+        long getBits(int slot) {
+            return primitives[slot];
+        }
+
+        void setBits(int slot, long bits) {
+
+            ensureCapacity(slot);
+
+            if (primitives == null) {
+                this.primitives = new long[values.length];
+            }
+
+            this.primitives[slot] = bits;
+            this.values[slot] = null;
+
+            this.setSlots[slot >>> 6] |= 1L << slot;
+            this.primitiveSlots[slot >>> 6] |= 1L << slot;
+
+        }
+
+        /**
+         *  @return whether the field in the specified slot is set to a non-null value, without boxing primitive values.
+         */
+        boolean hasValue(int slot) {
+
+            if (!isSet(slot)) {
+                throw new RuntimeException("Tried to get field \"" + getFieldName(slot) + "\" from data, which did not exist.");
+            }
+
+            return isPrimitive(slot)
+                || values[slot] != null;
+
+        }
+
+        public boolean isPresent(int slot) {
+
+            Field<?> field = slotFields[slot];
+            if (hasPresenceFlag(getPresenceLayout().presenceFlags()[slot], field, this)) {
+                return get(slot) != null;
+            }
+
+            return isSet(slot);
+
+        }
+
+        public boolean isPresent(String name) {
+
+            int slot = getSlot(name);
+            if (slot != -1) {
+                return isPresent(slot);
             }
 
-            return data.containsKey(name);
+            return extraData != null
+                && extraData.containsKey(name);
 
         }
 
@@ -171,34 +732,151 @@ public class SerializableData {
             }
         }
 
+        public void set(int slot, Object value) {
+
+            if (value != null && slot < slotFields.length && slotFields[slot].dataType instanceof PrimitiveDataType<?> primitiveType && primitiveType.accepts(value)) {
+                setBits(slot, primitiveType.toBits(value));
+                return;
+            }
+
+            ensureCapacity(slot);
+
+            this.values[slot] = value;
+
+            this.setSlots[slot >>> 6] |= 1L << slot;
+            this.primitiveSlots[slot >>> 6] &= ~(1L << slot);
+
+        }
+
         public void set(String name, Object value) {
-            this.data.put(name, value);
+
+            int slot = getSlot(name);
+            if (slot != -1) {
+                set(slot, value);
+                return;
+            }
+
+            if (extraData == null) {
+                this.extraData = new HashMap<>();
+            }
+
+            this.extraData.put(name, value);
+
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T get(int slot) {
+
+            if (!isSet(slot)) {
+                throw new RuntimeException("Tried to get field \"" + getFieldName(slot) + "\" from data, which did not exist.");
+            }
+
+            if (isPrimitive(slot) && slotFields[slot].dataType instanceof PrimitiveDataType<?> primitiveType) {
+                return (T) primitiveType.fromBits(primitives[slot]);
+            }
+
+            return (T) values[slot];
+
         }
 
         @SuppressWarnings("unchecked")
         public <T> T get(String name) {
 
-            if(!data.containsKey(name)) {
+            int slot = getSlot(name);
+            if (slot != -1) {
+                return get(slot);
+            }
+
+            if (extraData == null || !extraData.containsKey(name)) {
                 throw new RuntimeException("Tried to get field \"" + name + "\" from data, which did not exist.");
             }
 
-            return (T) data.get(name);
+            return (T) extraData.get(name);
+
+        }
+
+        public int getInt(int slot) {
+
+            if (isPrimitive(slot) && slotFields[slot].dataType instanceof PrimitiveDataType.OfInt) {
+                return (int) primitives[slot];
+            }
+
+            return get(slot);
+
+        }
+
+        public boolean getBoolean(int slot) {
+
+            if (isPrimitive(slot) && slotFields[slot].dataType instanceof PrimitiveDataType.OfBoolean) {
+                return primitives[slot] != 0L;
+            }
+
+            return get(slot);
+
+        }
+
+        public float getFloat(int slot) {
+
+            if (isPrimitive(slot) && slotFields[slot].dataType instanceof PrimitiveDataType.OfFloat) {
+                return Float.intBitsToFloat((int) primitives[slot]);
+            }
+
+            return get(slot);
+
+        }
+
+        public double getDouble(int slot) {
+
+            if (isPrimitive(slot) && slotFields[slot].dataType instanceof PrimitiveDataType.OfDouble) {
+                return Double.longBitsToDouble(primitives[slot]);
+            }
+
+            return get(slot);
+
         }
 
         public int getInt(String name) {
+
+            int slot = getSlot(name);
+            if (slot != -1) {
+                return getInt(slot);
+            }
+
             return get(name);
+
         }
 
         public boolean getBoolean(String name) {
+
+            int slot = getSlot(name);
+            if (slot != -1) {
+                return getBoolean(slot);
+            }
+
             return get(name);
+
         }
 
         public float getFloat(String name) {
+
+            int slot = getSlot(name);
+            if (slot != -1) {
+                return getFloat(slot);
+            }
+
             return get(name);
+
         }
 
         public double getDouble(String name) {
+
+            int slot = getSlot(name);
+            if (slot != -1) {
+                return getDouble(slot);
+            }
+
             return get(name);
+
         }
 
         public String getString(String name) {
@@ -215,6 +893,126 @@ public class SerializableData {
 
     }
 
+    /**
+     *  A typed reference to a field of a {@link SerializableData}, which accesses the values of its {@link Instance instances}
+     *  by slot.
+     */
+    public class FieldHandle<T> {
+
+        private final int slot;
+        private final String name;
+        private final Field<T> field;
+
+        private FieldHandle(int slot, String name, Field<T> field) {
+            this.slot = slot;
+            this.name = name;
+            this.field = field;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Field<T> getField() {
+            return field;
+        }
+
+        public T get(Instance instance) {
+            return check(instance).get(slot);
+        }
+
+        public void set(Instance instance, T value) {
+            check(instance).set(slot, value);
+        }
+
+        public int getInt(Instance instance) {
+            return check(instance).getInt(slot);
+        }
+
+        public boolean getBoolean(Instance instance) {
+            return check(instance).getBoolean(slot);
+        }
+
+        public float getFloat(Instance instance) {
+            return check(instance).getFloat(slot);
+        }
+
+        public double getDouble(Instance instance) {
+            return check(instance).getDouble(slot);
+        }
+
+        public boolean isPresent(Instance instance) {
+            return check(instance).isPresent(slot);
+        }
+
+        public void ifPresent(Instance instance, Consumer<T> consumer) {
+            if (isPresent(instance)) {
+                consumer.accept(get(instance));
+            }
+        }
+
+        private Instance check(Instance instance) {
+
+            if (instance.getSerializableData() != SerializableData.this) {
+                throw new IllegalArgumentException("Tried to access field \"" + name + "\" of a data instance that belongs to a different serializable data.");
+            }
+
+            return instance;
+
+        }
+
+    }
+
+    /**
+     *  <p>The layout of the presence of the fields, which is computed once per schema.</p>
+     *
+     *  <p>With a presence header, every field with a default has a presence bit, and every boolean field a value bit (instead of
+     *  being written after the header). Slots without such a bit are {@code -1}. The header is written as one VarLong per 64 bits,
+     *  so most schemas need a single VarLong, and schemas without any of these fields need none.</p>
+     *
+     *  <p>Without a presence header, the presence flag of each field is determined by its default, which is only evaluated for
+     *  each instance if it's a default function.</p>
+     */
+    record PresenceLayout(int[] presenceBits, int[] valueBits, int bitCount, PresenceFlag[] presenceFlags) {
+
+        static PresenceLayout of(Field<?>[] fields) {
+
+            int[] presenceBits = new int[fields.length];
+            int[] valueBits = new int[fields.length];
+            PresenceFlag[] presenceFlags = new PresenceFlag[fields.length];
+
+            int bit = 0;
+            for (int slot = 0; slot < fields.length; slot++) {
+                presenceBits[slot] = fields[slot].hasDefault() ? bit++ : -1;
+                valueBits[slot] = fields[slot].dataType instanceof PrimitiveDataType.OfBoolean ? bit++ : -1;
+                presenceFlags[slot] = fields[slot].getPresenceFlag();
+            }
+
+            return new PresenceLayout(presenceBits, valueBits, bit, presenceFlags);
+
+        }
+
+        int wordCount() {
+            return (bitCount + 63) >>> 6;
+        }
+
+    }
+
+    /**
+     *  Whether a presence flag is written in front of a field when it's written without a presence header: never (if it has no
+     *  default, or a default value that isn't {@code null}), always (if its default value is {@code null}), or only if its default
+     *  function returns {@code null} for the instance.
+     */
+    enum PresenceFlag {
+        NONE,
+        ALWAYS,
+        DYNAMIC
+    }
+
     public static class Field<T> {
         private final SerializableDataType<T> dataType;
         private final T defaultValue;
@@ -250,6 +1048,16 @@ public class SerializableData {
             return hasDefault || hasDefaultFunction;
         }
 
+        PresenceFlag getPresenceFlag() {
+            if (hasDefaultFunction) {
+                return PresenceFlag.DYNAMIC;
+            } else if (hasDefault && defaultValue == null) {
+                return PresenceFlag.ALWAYS;
+            } else {
+                return PresenceFlag.NONE;
+            }
+        }
+
         public T getDefault(Instance dataInstance) {
             if (hasDefaultFunction && defaultFunction != null) {
                 return defaultFunction.apply(dataInstance);
@@ -266,4 +1074,4 @@ public class SerializableData {
 
     }
 
-}
\ No newline at end of file
+}
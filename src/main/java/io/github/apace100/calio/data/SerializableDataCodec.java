@@ -0,0 +1,18 @@
+package io.github.apace100.calio.data;
+
+import com.google.gson.JsonObject;
+import net.minecraft.network.PacketByteBuf;
+
+/**
+ *  A reader/writer that is specialized for the fields of a single {@link SerializableData}. Implementations are generated at
+ *  runtime by {@link SerializableDataCodecGenerator}, and must behave exactly like the interpreted methods of {@link SerializableData}.
+ */
+interface SerializableDataCodec {
+
+    SerializableData.Instance read(JsonObject jsonObject);
+
+    SerializableData.Instance read(PacketByteBuf buffer);
+
+    void write(PacketByteBuf buffer, SerializableData.Instance instance);
+
+}
@@ -0,0 +1,515 @@
+package io.github.apace100.calio.data;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.PacketByteBuf;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ *  <p>Generates a {@link SerializableDataCodec} for the fields of a {@link SerializableData} as a hidden class. The generated class
+ *  unrolls the loop over the fields into straight-line code, in which the field, its data type and whether it has a default are
+ *  constants, so the JIT can inline the calls to each data type.</p>
+ *
+ *  <p>All classes and methods are referenced through their {@link Class} and {@link Method} objects, so the generated code uses
+ *  whichever (remapped) names are present at runtime.</p>
+ */
+final class SerializableDataCodecGenerator implements Opcodes {
+
+    private static final String CLASS_NAME = Type.getInternalName(SerializableDataCodecGenerator.class) + "$Codec";
+    private static final String DATA_FIELD = "DATA";
+
+    private static final Method JSON_OBJECT_GET = method(JsonObject.class, "get", String.class);
+    private static final Method BUFFER_READ_BOOLEAN = method(ByteBuf.class, "readBoolean");
+    private static final Method BUFFER_WRITE_BOOLEAN = method(ByteBuf.class, "writeBoolean", boolean.class);
+
+    private static final Method FIELD_GET_DEFAULT = method(SerializableData.Field.class, "getDefault", SerializableData.Instance.class);
+    private static final Method FIELD_GET_DATA_TYPE = method(SerializableData.Field.class, "getDataType");
+
+    private static final Method TYPE_READ = method(SerializableDataType.class, "read", JsonElement.class);
+    private static final Method TYPE_RECEIVE = method(SerializableDataType.class, "receive", PacketByteBuf.class);
+    private static final Method TYPE_SEND = method(SerializableDataType.class, "send", PacketByteBuf.class, Object.class);
+
+    private static final Method PRIMITIVE_TYPE_READ = method(PrimitiveDataType.class, "readBits", JsonElement.class);
+    private static final Method PRIMITIVE_TYPE_RECEIVE = method(PrimitiveDataType.class, "receiveBits", PacketByteBuf.class);
+    private static final Method PRIMITIVE_TYPE_SEND = method(PrimitiveDataType.class, "sendBits", PacketByteBuf.class, long.class);
+
+    private static final Constructor<?> INSTANCE_INIT = constructor(SerializableData.Instance.class, SerializableData.class);
+    private static final Method INSTANCE_GET = method(SerializableData.Instance.class, "get", int.class);
+    private static final Method INSTANCE_SET = method(SerializableData.Instance.class, "set", int.class, Object.class);
+    private static final Method INSTANCE_HAS_VALUE = method(SerializableData.Instance.class, "hasValue", int.class);
+    private static final Method INSTANCE_IS_PRIMITIVE = method(SerializableData.Instance.class, "isPrimitive", int.class);
+    private static final Method INSTANCE_GET_BITS = method(SerializableData.Instance.class, "getBits", int.class);
+    private static final Method INSTANCE_SET_BITS = method(SerializableData.Instance.class, "setBits", int.class, long.class);
+
+    private static final Constructor<?> JSON_SYNTAX_EXCEPTION_INIT = constructor(JsonSyntaxException.class, String.class);
+    private static final Constructor<?> DATA_EXCEPTION_INIT = constructor(DataException.class, DataException.Phase.class, String.class, Exception.class);
+    private static final Method DATA_EXCEPTION_PREPEND = method(DataException.class, "prepend", String.class);
+
+    private final String[] names;
+    private final SerializableData.Field<?>[] fields;
+    private final SerializableData.PresenceLayout layout;
+
+    private SerializableDataCodecGenerator(String[] names, SerializableData.Field<?>[] fields, SerializableData.PresenceLayout layout) {
+        this.names = names;
+        this.fields = fields;
+        this.layout = layout;
+    }
+
+    /**
+     *  Generates and defines a codec for the specified fields of the specified data. Only the presence flags of fields with a
+     *  default function are determined when the codec runs; the others are decided by the specified layout while generating it.
+     *
+     *  @throws Exception   if the class couldn't be generated or defined, in which case the interpreted methods of {@link SerializableData}
+     *                      should be used instead.
+     */
+    static SerializableDataCodec generate(SerializableData data, String[] names, SerializableData.Field<?>[] fields, SerializableData.PresenceLayout layout) throws Exception {
+
+        byte[] bytes = new SerializableDataCodecGenerator(names, fields, layout).generateClass();
+        MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClassWithClassData(bytes, new Object[] {data, fields}, true);
+
+        return (SerializableDataCodec) lookup.lookupClass().getConstructor().newInstance();
+
+    }
+
+    private byte[] generateClass() {
+
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+
+            //  The generated code never merges two different reference types, so loading classes to compute a common super class
+            //  is never necessary
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return "java/lang/Object";
+            }
+
+        };
+
+        classWriter.visit(V17, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, CLASS_NAME, null, "java/lang/Object", new String[] {Type.getInternalName(SerializableDataCodec.class)});
+        classWriter.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, DATA_FIELD, Type.getDescriptor(SerializableData.class), null, null).visitEnd();
+
+        for (int slot = 0; slot < fields.length; slot++) {
+            classWriter.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, fieldName(slot), Type.getDescriptor(SerializableData.Field.class), null, null).visitEnd();
+            classWriter.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, typeName(slot), Type.getDescriptor(typeClass(slot)), null, null).visitEnd();
+        }
+
+        generateStaticInitializer(classWriter);
+        generateConstructor(classWriter);
+
+        generateReadJson(classWriter);
+        generateReadPacket(classWriter);
+        generateWritePacket(classWriter);
+
+        classWriter.visitEnd();
+        return classWriter.toByteArray();
+
+    }
+
+    private void generateStaticInitializer(ClassWriter classWriter) {
+
+        MethodVisitor mv = classWriter.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+        mv.visitCode();
+
+        //  Object[] classData = MethodHandles.classData(MethodHandles.lookup(), "_", Object[].class);
+        mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(MethodHandles.class), "lookup", Type.getMethodDescriptor(Type.getType(MethodHandles.Lookup.class)), false);
+        mv.visitLdcInsn("_");
+        mv.visitLdcInsn(Type.getType(Object[].class));
+        mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(MethodHandles.class), "classData", Type.getMethodDescriptor(Type.getType(Object.class), Type.getType(MethodHandles.Lookup.class), Type.getType(String.class), Type.getType(Class.class)), false);
+        mv.visitTypeInsn(CHECKCAST, Type.getInternalName(Object[].class));
+        mv.visitVarInsn(ASTORE, 0);
+
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitInsn(ICONST_0);
+        mv.visitInsn(AALOAD);
+        mv.visitTypeInsn(CHECKCAST, Type.getInternalName(SerializableData.class));
+        mv.visitFieldInsn(PUTSTATIC, CLASS_NAME, DATA_FIELD, Type.getDescriptor(SerializableData.class));
+
+        for (int slot = 0; slot < fields.length; slot++) {
+
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitInsn(ICONST_1);
+            mv.visitInsn(AALOAD);
+            mv.visitTypeInsn(CHECKCAST, Type.getInternalName(SerializableData.Field[].class));
+            pushInt(mv, slot);
+            mv.visitInsn(AALOAD);
+            mv.visitTypeInsn(CHECKCAST, Type.getInternalName(SerializableData.Field.class));
+            mv.visitInsn(DUP);
+            mv.visitFieldInsn(PUTSTATIC, CLASS_NAME, fieldName(slot), Type.getDescriptor(SerializableData.Field.class));
+
+            invoke(mv, FIELD_GET_DATA_TYPE);
+            mv.visitTypeInsn(CHECKCAST, Type.getInternalName(typeClass(slot)));
+            mv.visitFieldInsn(PUTSTATIC, CLASS_NAME, typeName(slot), Type.getDescriptor(typeClass(slot)));
+
+        }
+
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+    }
+
+    private void generateConstructor(ClassWriter classWriter) {
+
+        MethodVisitor mv = classWriter.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+    }
+
+    /**
+     *  Generates the equivalent of {@link SerializableData#read(JsonObject)}. Locals: {@code 1} is the JSON object, {@code 2} is
+     *  the instance and {@code 3} is the JSON element of the current field.
+     */
+    private void generateReadJson(ClassWriter classWriter) {
+
+        MethodVisitor mv = beginMethod(classWriter, method(SerializableDataCodec.class, "read", JsonObject.class));
+
+        newInstance(mv);
+        mv.visitVarInsn(ASTORE, 2);
+
+        for (int slot = 0; slot < fields.length; slot++) {
+
+            Label start = new Label();
+            Label end = new Label();
+            Label absent = new Label();
+
+            mv.visitLabel(start);
+
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitLdcInsn(names[slot]);
+            invoke(mv, JSON_OBJECT_GET);
+            mv.visitVarInsn(ASTORE, 3);
+
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitJumpInsn(IFNULL, absent);
+
+            mv.visitVarInsn(ALOAD, 2);
+            pushInt(mv, slot);
+            getType(mv, slot);
+            mv.visitVarInsn(ALOAD, 3);
+
+            if (isPrimitive(slot)) {
+                invoke(mv, PRIMITIVE_TYPE_READ);
+                invoke(mv, INSTANCE_SET_BITS);
+            } else {
+                invoke(mv, TYPE_READ);
+                invoke(mv, INSTANCE_SET);
+            }
+
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(absent);
+
+            if (fields[slot].hasDefault()) {
+                mv.visitVarInsn(ALOAD, 2);
+                pushInt(mv, slot);
+                getDefault(mv, slot);
+                invoke(mv, INSTANCE_SET);
+            } else {
+                mv.visitTypeInsn(NEW, Type.getInternalName(JsonSyntaxException.class));
+                mv.visitInsn(DUP);
+                mv.visitLdcInsn("JSON requires field: " + names[slot]);
+                invoke(mv, JSON_SYNTAX_EXCEPTION_INIT);
+                mv.visitInsn(ATHROW);
+            }
+
+            mv.visitLabel(end);
+            catchFieldExceptions(mv, slot, start, end, DataException.Phase.READING);
+
+        }
+
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitInsn(ARETURN);
+
+        endMethod(mv);
+
+    }
+
+    /**
+     *  Generates the equivalent of {@link SerializableData#read(PacketByteBuf)}. Locals: {@code 1} is the buffer and {@code 2} is
+     *  the instance.
+     */
+    private void generateReadPacket(ClassWriter classWriter) {
+
+        MethodVisitor mv = beginMethod(classWriter, method(SerializableDataCodec.class, "read", PacketByteBuf.class));
+
+        newInstance(mv);
+        mv.visitVarInsn(ASTORE, 2);
+
+        for (int slot = 0; slot < fields.length; slot++) {
+
+            Label start = new Label();
+            Label end = new Label();
+            Label present = new Label();
+
+            mv.visitLabel(start);
+
+            SerializableData.PresenceFlag presenceFlag = layout.presenceFlags()[slot];
+            if (presenceFlag != SerializableData.PresenceFlag.NONE) {
+
+                if (presenceFlag == SerializableData.PresenceFlag.DYNAMIC) {
+                    getDefault(mv, slot);
+                    mv.visitJumpInsn(IFNONNULL, present);
+                }
+
+                mv.visitVarInsn(ALOAD, 1);
+                invoke(mv, BUFFER_READ_BOOLEAN);
+                mv.visitJumpInsn(IFNE, present);
+
+                mv.visitVarInsn(ALOAD, 2);
+                pushInt(mv, slot);
+                mv.visitInsn(ACONST_NULL);
+                invoke(mv, INSTANCE_SET);
+                mv.visitJumpInsn(GOTO, end);
+
+            }
+
+            mv.visitLabel(present);
+
+            mv.visitVarInsn(ALOAD, 2);
+            pushInt(mv, slot);
+            getType(mv, slot);
+            mv.visitVarInsn(ALOAD, 1);
+
+            if (isPrimitive(slot)) {
+                invoke(mv, PRIMITIVE_TYPE_RECEIVE);
+                invoke(mv, INSTANCE_SET_BITS);
+            } else {
+                invoke(mv, TYPE_RECEIVE);
+                invoke(mv, INSTANCE_SET);
+            }
+
+            mv.visitLabel(end);
+            catchFieldExceptions(mv, slot, start, end, DataException.Phase.RECEIVING);
+
+        }
+
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitInsn(ARETURN);
+
+        endMethod(mv);
+
+    }
+
+    /**
+     *  Generates the equivalent of {@link SerializableData#write(PacketByteBuf, SerializableData.Instance)}. Locals: {@code 1} is the
+     *  buffer, {@code 2} is the instance and {@code 3} is whether the current field has a value.
+     */
+    private void generateWritePacket(ClassWriter classWriter) {
+
+        MethodVisitor mv = beginMethod(classWriter, method(SerializableDataCodec.class, "write", PacketByteBuf.class, SerializableData.Instance.class));
+
+        for (int slot = 0; slot < fields.length; slot++) {
+
+            Label start = new Label();
+            Label end = new Label();
+
+            mv.visitLabel(start);
+
+            mv.visitVarInsn(ALOAD, 2);
+            pushInt(mv, slot);
+            invoke(mv, INSTANCE_HAS_VALUE);
+            mv.visitVarInsn(ISTORE, 3);
+
+            SerializableData.PresenceFlag presenceFlag = layout.presenceFlags()[slot];
+            if (presenceFlag != SerializableData.PresenceFlag.NONE) {
+
+                Label nonNullDefault = new Label();
+
+                if (presenceFlag == SerializableData.PresenceFlag.DYNAMIC) {
+                    getDefault(mv, slot);
+                    mv.visitJumpInsn(IFNONNULL, nonNullDefault);
+                }
+
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitVarInsn(ILOAD, 3);
+                invoke(mv, BUFFER_WRITE_BOOLEAN);
+                mv.visitInsn(POP);
+
+                mv.visitLabel(nonNullDefault);
+
+            }
+
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitJumpInsn(IFEQ, end);
+
+            if (isPrimitive(slot)) {
+
+                Label boxed = new Label();
+
+                mv.visitVarInsn(ALOAD, 2);
+                pushInt(mv, slot);
+                invoke(mv, INSTANCE_IS_PRIMITIVE);
+                mv.visitJumpInsn(IFEQ, boxed);
+
+                getType(mv, slot);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitVarInsn(ALOAD, 2);
+                pushInt(mv, slot);
+                invoke(mv, INSTANCE_GET_BITS);
+                invoke(mv, PRIMITIVE_TYPE_SEND);
+                mv.visitJumpInsn(GOTO, end);
+
+                mv.visitLabel(boxed);
+
+            }
+
+            getType(mv, slot);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitVarInsn(ALOAD, 2);
+            pushInt(mv, slot);
+            invoke(mv, INSTANCE_GET);
+            invoke(mv, TYPE_SEND);
+
+            mv.visitLabel(end);
+            catchFieldExceptions(mv, slot, start, end, DataException.Phase.WRITING);
+
+        }
+
+        mv.visitInsn(RETURN);
+        endMethod(mv);
+
+    }
+
+    /**
+     *  Emits the handlers for the code of a field between {@code start} and {@code end}, which behave like {@code catch (DataException e)
+     *  { throw e.prepend(name); } catch (Exception e) { throw new DataException(phase, name, e); }}, and a jump over them.
+     */
+    private void catchFieldExceptions(MethodVisitor mv, int slot, Label start, Label end, DataException.Phase phase) {
+
+        Label dataExceptionHandler = new Label();
+        Label exceptionHandler = new Label();
+        Label next = new Label();
+
+        mv.visitTryCatchBlock(start, end, dataExceptionHandler, Type.getInternalName(DataException.class));
+        mv.visitTryCatchBlock(start, end, exceptionHandler, Type.getInternalName(Exception.class));
+
+        mv.visitJumpInsn(GOTO, next);
+
+        mv.visitLabel(dataExceptionHandler);
+        mv.visitLdcInsn(names[slot]);
+        invoke(mv, DATA_EXCEPTION_PREPEND);
+        mv.visitInsn(ATHROW);
+
+        mv.visitLabel(exceptionHandler);
+        mv.visitVarInsn(ASTORE, 4);
+        mv.visitTypeInsn(NEW, Type.getInternalName(DataException.class));
+        mv.visitInsn(DUP);
+        mv.visitFieldInsn(GETSTATIC, Type.getInternalName(DataException.Phase.class), phase.name(), Type.getDescriptor(DataException.Phase.class));
+        mv.visitLdcInsn(names[slot]);
+        mv.visitVarInsn(ALOAD, 4);
+        invoke(mv, DATA_EXCEPTION_INIT);
+        mv.visitInsn(ATHROW);
+
+        mv.visitLabel(next);
+
+    }
+
+    private void newInstance(MethodVisitor mv) {
+        mv.visitTypeInsn(NEW, Type.getInternalName(SerializableData.Instance.class));
+        mv.visitInsn(DUP);
+        mv.visitFieldInsn(GETSTATIC, CLASS_NAME, DATA_FIELD, Type.getDescriptor(SerializableData.class));
+        invoke(mv, INSTANCE_INIT);
+    }
+
+    private void getDefault(MethodVisitor mv, int slot) {
+        mv.visitFieldInsn(GETSTATIC, CLASS_NAME, fieldName(slot), Type.getDescriptor(SerializableData.Field.class));
+        mv.visitVarInsn(ALOAD, 2);
+        invoke(mv, FIELD_GET_DEFAULT);
+    }
+
+    private void getType(MethodVisitor mv, int slot) {
+        mv.visitFieldInsn(GETSTATIC, CLASS_NAME, typeName(slot), Type.getDescriptor(typeClass(slot)));
+    }
+
+    private boolean isPrimitive(int slot) {
+        return fields[slot].getDataType() instanceof PrimitiveDataType<?>;
+    }
+
+    private Class<?> typeClass(int slot) {
+        return isPrimitive(slot) ? PrimitiveDataType.class : SerializableDataType.class;
+    }
+
+    private static String fieldName(int slot) {
+        return "FIELD_" + slot;
+    }
+
+    private static String typeName(int slot) {
+        return "TYPE_" + slot;
+    }
+
+    private static MethodVisitor beginMethod(ClassWriter classWriter, Method method) {
+        MethodVisitor mv = classWriter.visitMethod(ACC_PUBLIC, method.getName(), Type.getMethodDescriptor(method), null, null);
+        mv.visitCode();
+        return mv;
+    }
+
+    private static void endMethod(MethodVisitor mv) {
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    private static void invoke(MethodVisitor mv, Executable executable) {
+
+        String owner = Type.getInternalName(executable.getDeclaringClass());
+        if (executable instanceof Constructor<?> constructor) {
+            mv.visitMethodInsn(INVOKESPECIAL, owner, "<init>", Type.getConstructorDescriptor(constructor), false);
+            return;
+        }
+
+        Method method = (Method) executable;
+        boolean isInterface = method.getDeclaringClass().isInterface();
+
+        int opcode = Modifier.isStatic(method.getModifiers()) ? INVOKESTATIC
+            : isInterface ? INVOKEINTERFACE
+            : INVOKEVIRTUAL;
+
+        mv.visitMethodInsn(opcode, owner, method.getName(), Type.getMethodDescriptor(method), isInterface);
+
+    }
+
+    private static Method method(Class<?> owner, String name, Class<?>... parameterTypes) {
+        try {
+            return owner.getDeclaredMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Constructor<?> constructor(Class<?> owner, Class<?>... parameterTypes) {
+        try {
+            return owner.getDeclaredConstructor(parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
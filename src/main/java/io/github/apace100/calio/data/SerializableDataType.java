@@ -2,15 +2,18 @@ package io.github.apace100.calio.data;
 
 import com.google.common.collect.BiMap;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.mojang.brigadier.StringReader;
 import com.mojang.brigadier.arguments.ArgumentType;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import io.github.apace100.calio.Calio;
 import io.github.apace100.calio.ClassUtil;
 import io.github.apace100.calio.FilterableWeightedList;
-import io.github.apace100.calio.mixin.WeightedListEntryAccessor;
+import io.github.apace100.calio.network.SyncPacketByteBuf;
 import io.github.apace100.calio.util.ArgumentWrapper;
 import io.github.apace100.calio.util.DynamicIdentifier;
+import io.github.apace100.calio.util.RegistryTagSnapshot;
 import io.github.apace100.calio.util.TagLike;
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.registry.DynamicRegistryManager;
@@ -20,8 +23,9 @@ import net.minecraft.registry.entry.RegistryEntry;
 import net.minecraft.registry.tag.TagKey;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.JsonHelper;
-import net.minecraft.util.collection.WeightedList;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
@@ -35,6 +39,7 @@ public class SerializableDataType<T> {
     private final Function<PacketByteBuf, T> receive;
     private final Function<JsonElement, T> read;
     private final Function<T, JsonElement> write;
+    private final StreamReader<T> streamRead;
 
     @Deprecated
     public SerializableDataType(Class<T> dataClass,
@@ -52,11 +57,25 @@ public class SerializableDataType<T> {
                                 Function<PacketByteBuf, T> receive,
                                 Function<JsonElement, T> read,
                                 Function<T, JsonElement> write) {
+        this(dataClass, send, receive, read, write, null);
+    }
+
+    /**
+     *  @param streamRead   reads the value directly from a JSON token stream. If {@code null}, the value is read into a JSON
+     *                      element first, which is then read with {@code read}.
+     */
+    public SerializableDataType(Class<T> dataClass,
+                                BiConsumer<PacketByteBuf, T> send,
+                                Function<PacketByteBuf, T> receive,
+                                Function<JsonElement, T> read,
+                                Function<T, JsonElement> write,
+                                @Nullable StreamReader<T> streamRead) {
         this.dataClass = dataClass;
         this.send = send;
         this.receive = receive;
         this.read = read;
         this.write = write;
+        this.streamRead = streamRead;
     }
 
     public void send(PacketByteBuf buffer, Object value) {
@@ -71,6 +90,16 @@ public class SerializableDataType<T> {
         return read.apply(jsonElement);
     }
 
+    /**
+     *  Reads the next value of the specified reader. Types that can't be read from a token stream only receive the JSON element
+     *  of the value itself.
+     */
+    public T read(JsonReader reader) throws IOException {
+        return streamRead != null
+            ? streamRead.read(reader)
+            : read(JsonParser.parseReader(reader));
+    }
+
     public JsonElement writeUnsafely(Object value) throws Exception {
         try {
             return write.apply(cast(value));
@@ -89,7 +118,7 @@ public class SerializableDataType<T> {
 
     public static <T> SerializableDataType<List<T>> list(SerializableDataType<T> singleDataType) {
         return new SerializableDataType<>(ClassUtil.castClass(List.class), (buf, list) -> {
-            buf.writeInt(list.size());
+            SyncPacketByteBuf.writeSize(buf, list.size());
             int i = 0;
             for(T elem : list) {
                 try {
@@ -102,7 +131,7 @@ public class SerializableDataType<T> {
                 i++;
             }
         }, (buf) -> {
-            int count = buf.readInt();
+            int count = SyncPacketByteBuf.readSize(buf);
             LinkedList<T> list = new LinkedList<>();
             for(int i = 0; i < count; i++) {
                 try {
@@ -138,17 +167,37 @@ public class SerializableDataType<T> {
                 array.add(singleDataType.write.apply(value));
             }
             return array;
+        }, (reader) -> {
+            LinkedList<T> list = new LinkedList<>();
+            if(reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                int i = 0;
+                while(reader.hasNext()) {
+                    try {
+                        list.add(singleDataType.read(reader));
+                    } catch(DataException e) {
+                        throw e.prepend("[" + i + "]");
+                    } catch(Exception e) {
+                        throw new DataException(DataException.Phase.READING, "[" + i + "]", e);
+                    }
+                    i++;
+                }
+                reader.endArray();
+            } else {
+                list.add(singleDataType.read(reader));
+            }
+            return list;
         });
     }
 
     public static <T> SerializableDataType<FilterableWeightedList<T>> weightedList(SerializableDataType<T> singleDataType) {
         return new SerializableDataType<>(ClassUtil.castClass(FilterableWeightedList.class), (buf, list) -> {
-            buf.writeInt(list.size());
+            SyncPacketByteBuf.writeSize(buf, list.filteredSize());
             AtomicInteger i = new AtomicInteger();
-            list.entryStream().forEach(entry -> {
+            list.forEachWeighted((element, weight) -> {
                 try {
-                    singleDataType.send(buf, entry.getElement());
-                    buf.writeInt(((WeightedListEntryAccessor) entry).getWeight());
+                    singleDataType.send(buf, element);
+                    SyncPacketByteBuf.writeSignedInt(buf, weight);
                 } catch(DataException e) {
                     throw e.prepend("[" + i.get() + "]");
                 } catch(Exception e) {
@@ -157,12 +206,12 @@ public class SerializableDataType<T> {
                 i.getAndIncrement();
             });
         }, (buf) -> {
-            int count = buf.readInt();
+            int count = SyncPacketByteBuf.readSize(buf);
             FilterableWeightedList<T> list = new FilterableWeightedList<>();
             for (int i = 0; i < count; i++) {
                 try {
                     T t = singleDataType.receive(buf);
-                    int weight = buf.readInt();
+                    int weight = SyncPacketByteBuf.readSignedInt(buf);
                     list.add(t, weight);
                 } catch(DataException e) {
                     throw e.prepend("[" + i + "]");
@@ -192,11 +241,12 @@ public class SerializableDataType<T> {
             return list;
         }, (list) -> {
             JsonArray array = new JsonArray();
-            for (WeightedList.Entry<T> value : list.entryStream().toList()) {
+            list.forEachWeighted((element, weight) -> {
                 JsonObject listObject = new JsonObject();
-                listObject.add("element", singleDataType.write.apply(value.getElement()));
-                listObject.addProperty("weight", value.getWeight());
-            }
+                listObject.add("element", singleDataType.write.apply(element));
+                listObject.addProperty("weight", weight);
+                array.add(listObject);
+            });
             return array;
         });
     }
@@ -225,7 +275,7 @@ public class SerializableDataType<T> {
     }
 
     public static <T> SerializableDataType<T> registry(Class<T> dataClass, Registry<T> registry, String defaultNamespace, BiFunction<Registry<T>, Identifier, RuntimeException> exception) {
-        return wrap(
+        SerializableDataType<T> jsonDataType = wrap(
             dataClass,
             SerializableDataTypes.STRING,
             t -> Objects.requireNonNull(registry.getId(t)).toString(),
@@ -234,6 +284,27 @@ public class SerializableDataType<T> {
                 return registry.getOrEmpty(id).orElseThrow(() -> exception.apply(registry, id));
             }
         );
+        //  Written as an identifier, which is equivalent to writing its string, so that it can be written as an index in the
+        //  identifier palette (or as a raw ID) of a sync payload
+        return new SerializableDataType<>(
+            dataClass,
+            (buf, t) -> SyncPacketByteBuf.writeRegistryEntry(buf, registry, t),
+            buf -> {
+                if (SyncPacketByteBuf.usesRawIds(buf, registry)) {
+                    int rawId = buf.readVarInt();
+                    T t = registry.get(rawId);
+                    if (t == null) {
+                        throw new IllegalArgumentException("Raw ID " + rawId + " is not registered in registry \"" + registry.getKey().getValue() + "\".");
+                    }
+                    return t;
+                }
+                Identifier id = buf.readIdentifier();
+                return registry.getOrEmpty(id).orElseThrow(() -> exception.apply(registry, id));
+            },
+            jsonDataType::read,
+            jsonDataType::write,
+            jsonDataType::read
+        );
     }
 
     public static <T> SerializableDataType<T> compound(Class<T> dataClass, SerializableData data, Function<SerializableData.Instance, T> toInstance, BiFunction<SerializableData, T, SerializableData.Instance> toData) {
@@ -241,7 +312,10 @@ public class SerializableDataType<T> {
             (buf, t) -> data.write(buf, toData.apply(data, t)),
             (buf) -> toInstance.apply(data.read(buf)),
             (json) -> toInstance.apply(data.read(json.getAsJsonObject())),
-            (t) -> data.write(toData.apply(data, t)));
+            (t) -> data.write(toData.apply(data, t)),
+            (reader) -> reader.peek() == JsonToken.BEGIN_OBJECT
+                ? toInstance.apply(data.read(reader))
+                : toInstance.apply(data.read(JsonParser.parseReader(reader).getAsJsonObject())));
     }
 
     public static <T extends Enum<T>> SerializableDataType<T> enumValue(Class<T> dataClass) {
@@ -249,9 +323,10 @@ public class SerializableDataType<T> {
     }
 
     public static <T extends Enum<T>> SerializableDataType<T> enumValue(Class<T> dataClass, HashMap<String, T> additionalMap) {
+        T[] enumConstants = dataClass.getEnumConstants();
         return new SerializableDataType<>(dataClass,
-            (buf, t) -> buf.writeInt(t.ordinal()),
-            (buf) -> dataClass.getEnumConstants()[buf.readInt()],
+            (buf, t) -> SyncPacketByteBuf.writeOrdinal(buf, t.ordinal(), enumConstants.length),
+            (buf) -> enumConstants[SyncPacketByteBuf.readOrdinal(buf, enumConstants.length)],
             (json) -> {
                 if(json.isJsonPrimitive()) {
                     JsonPrimitive primitive = json.getAsJsonPrimitive();
@@ -362,7 +437,8 @@ public class SerializableDataType<T> {
             (buf, t) -> base.send(buf, toFunction.apply(t)),
             (buf) -> fromFunction.apply(base.receive(buf)),
             (json) -> fromFunction.apply(base.read(json)),
-            (t) -> base.write(toFunction.apply(t)));
+            (t) -> base.write(toFunction.apply(t)),
+            (reader) -> fromFunction.apply(base.read(reader)));
     }
 
     public static <T> SerializableDataType<TagKey<T>> tag(RegistryKey<? extends Registry<T>> registryRef) {
@@ -373,9 +449,7 @@ public class SerializableDataType<T> {
             id -> {
 
                 TagKey<T> tagKey = TagKey.of(registryRef, id);
-                Map<TagKey<?>, Collection<RegistryEntry<?>>> registryTags = Calio.REGISTRY_TAGS.get();
-
-                if (registryTags != null && !registryTags.containsKey(tagKey)) {
+                if (!RegistryTagSnapshot.exists(tagKey)) {
                     throw new IllegalArgumentException("Tag \"" + id + "\" for registry \"" + registryRef.getValue() + "\" doesn't exist.");
                 }
 
@@ -409,15 +483,34 @@ public class SerializableDataType<T> {
     public static <T extends Enum<T>> SerializableDataType<EnumSet<T>> enumSet(Class<T> enumClass, SerializableDataType<T> enumDataType) {
         return new SerializableDataType<>(ClassUtil.castClass(EnumSet.class),
             (buf, set) -> {
-                buf.writeInt(set.size());
-                set.forEach(t -> buf.writeInt(t.ordinal()));
+                T[] allValues = enumClass.getEnumConstants();
+                //  Written as a bit mask of the ordinals in the compact profile, if it fits into one
+                if(SyncPacketByteBuf.isCompact(buf) && allValues.length <= 64) {
+                    long mask = 0L;
+                    for(T t : set) {
+                        mask |= 1L << t.ordinal();
+                    }
+                    buf.writeVarLong(mask);
+                    return;
+                }
+                SyncPacketByteBuf.writeSize(buf, set.size());
+                set.forEach(t -> SyncPacketByteBuf.writeOrdinal(buf, t.ordinal(), allValues.length));
             },
             (buf) -> {
-                int size = buf.readInt();
                 EnumSet<T> set = EnumSet.noneOf(enumClass);
                 T[] allValues = enumClass.getEnumConstants();
+                if(SyncPacketByteBuf.isCompact(buf) && allValues.length <= 64) {
+                    long mask = buf.readVarLong();
+                    for(T t : allValues) {
+                        if((mask & (1L << t.ordinal())) != 0) {
+                            set.add(t);
+                        }
+                    }
+                    return set;
+                }
+                int size = SyncPacketByteBuf.readSize(buf);
                 for(int i = 0; i < size; i++) {
-                    int ordinal = buf.readInt();
+                    int ordinal = SyncPacketByteBuf.readOrdinal(buf, allValues.length);
                     set.add(allValues[ordinal]);
                 }
                 return set;
@@ -454,7 +547,8 @@ public class SerializableDataType<T> {
             numberDataType.send,
             numberDataType.receive,
             jsonElement -> read.apply(numberDataType.read(jsonElement)).apply(min, max),
-            numberDataType.write
+            numberDataType.write,
+            reader -> read.apply(numberDataType.read(reader)).apply(min, max)
         );
     }
 
@@ -490,4 +584,9 @@ public class SerializableDataType<T> {
         );
     }
 
+    @FunctionalInterface
+    public interface StreamReader<T> {
+        T read(JsonReader reader) throws IOException;
+    }
+
 }
@@ -11,6 +11,7 @@ import io.github.apace100.calio.Calio;
 import io.github.apace100.calio.ClassUtil;
 import io.github.apace100.calio.SerializationHelper;
 import io.github.apace100.calio.mixin.IngredientAccessor;
+import io.github.apace100.calio.network.SyncPacketByteBuf;
 import io.github.apace100.calio.util.*;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
@@ -59,12 +60,7 @@ import java.util.*;
 @SuppressWarnings("unused")
 public final class SerializableDataTypes {
 
-    public static final SerializableDataType<Integer> INT = new SerializableDataType<>(
-        Integer.class,
-        PacketByteBuf::writeInt,
-        PacketByteBuf::readInt,
-        JsonElement::getAsInt,
-        JsonPrimitive::new);
+    public static final SerializableDataType<Integer> INT = new PrimitiveDataType.OfInt();
 
     public static final SerializableDataType<List<Integer>> INTS = SerializableDataType.list(INT);
 
@@ -83,19 +79,9 @@ public final class SerializableDataTypes {
 
     public static final SerializableDataType<List<Integer>> POSITIVE_INTS = SerializableDataType.list(POSITIVE_INT);
 
-    public static final SerializableDataType<Boolean> BOOLEAN = new SerializableDataType<>(
-        Boolean.class,
-        PacketByteBuf::writeBoolean,
-        PacketByteBuf::readBoolean,
-        JsonElement::getAsBoolean,
-        JsonPrimitive::new);
+    public static final SerializableDataType<Boolean> BOOLEAN = new PrimitiveDataType.OfBoolean();
 
-    public static final SerializableDataType<Float> FLOAT = new SerializableDataType<>(
-        Float.class,
-        PacketByteBuf::writeFloat,
-        PacketByteBuf::readFloat,
-        JsonElement::getAsFloat,
-        JsonPrimitive::new);
+    public static final SerializableDataType<Float> FLOAT = new PrimitiveDataType.OfFloat();
 
     public static final SerializableDataType<List<Float>> FLOATS = SerializableDataType.list(FLOAT);
 
@@ -114,12 +100,7 @@ public final class SerializableDataTypes {
 
     public static final SerializableDataType<List<Float>> POSITIVE_FLOATS = SerializableDataType.list(POSITIVE_FLOAT);
 
-    public static final SerializableDataType<Double> DOUBLE = new SerializableDataType<>(
-        Double.class,
-        PacketByteBuf::writeDouble,
-        PacketByteBuf::readDouble,
-        JsonElement::getAsDouble,
-        JsonPrimitive::new);
+    public static final SerializableDataType<Double> DOUBLE = new PrimitiveDataType.OfDouble();
 
     public static final SerializableDataType<List<Double>> DOUBLES = SerializableDataType.list(DOUBLE);
 
@@ -156,7 +137,7 @@ public final class SerializableDataTypes {
                 buf.writeFloat(number.floatValue());
             } else if(number instanceof Integer) {
                 buf.writeByte(2);
-                buf.writeInt(number.intValue());
+                SyncPacketByteBuf.writeSignedInt(buf, number.intValue());
             } else if(number instanceof Long) {
                 buf.writeByte(3);
                 buf.writeLong(number.longValue());
@@ -173,7 +154,7 @@ public final class SerializableDataTypes {
                 case 1:
                     return buf.readFloat();
                 case 2:
-                    return buf.readInt();
+                    return SyncPacketByteBuf.readSignedInt(buf);
                 case 3:
                     return buf.readLong();
                 case 4:
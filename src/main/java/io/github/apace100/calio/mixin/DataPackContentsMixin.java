@@ -1,6 +1,7 @@
 package io.github.apace100.calio.mixin;
 
 import io.github.apace100.calio.Calio;
+import io.github.apace100.calio.util.RegistryTagSnapshot;
 import net.minecraft.registry.DynamicRegistryManager;
 import net.minecraft.resource.ResourceManager;
 import net.minecraft.resource.featuretoggle.FeatureSet;
@@ -20,6 +21,7 @@ public abstract class DataPackContentsMixin {
     @Inject(method = "reload", at = @At("HEAD"))
     private static void calio$cacheDynamicRegistries(ResourceManager manager, DynamicRegistryManager.Immutable dynamicRegistryManager, FeatureSet enabledFeatures, CommandManager.RegistrationEnvironment environment, int functionPermissionLevel, Executor prepareExecutor, Executor applyExecutor, CallbackInfoReturnable<CompletableFuture<DataPackContents>> cir) {
         Calio.DYNAMIC_REGISTRIES.set(dynamicRegistryManager);
+        RegistryTagSnapshot.publish(null);
     }
 
 }
@@ -0,0 +1,18 @@
+package io.github.apace100.calio.mixin;
+
+import io.github.apace100.calio.util.TagEpoch;
+import net.minecraft.registry.SimpleRegistry;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(SimpleRegistry.class)
+public abstract class SimpleRegistryMixin {
+
+    @Inject(method = {"populateTags", "clearTags"}, at = @At("RETURN"))
+    private void calio$advanceTagEpoch(CallbackInfo ci) {
+        TagEpoch.advance();
+    }
+
+}
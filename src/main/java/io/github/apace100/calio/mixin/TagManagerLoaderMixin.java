@@ -1,9 +1,12 @@
 package io.github.apace100.calio.mixin;
 
 import io.github.apace100.calio.Calio;
+import io.github.apace100.calio.util.RegistryTagSnapshot;
+import net.minecraft.registry.Registry;
+import net.minecraft.registry.RegistryKey;
 import net.minecraft.registry.entry.RegistryEntry;
-import net.minecraft.registry.tag.TagKey;
 import net.minecraft.registry.tag.TagManagerLoader;
+import net.minecraft.util.Identifier;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.injection.At;
@@ -20,16 +23,18 @@ public abstract class TagManagerLoaderMixin {
 
     @Shadow private List<TagManagerLoader.RegistryTags<?>> registryTags;
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
+    @SuppressWarnings("removal")
     @Inject(method = "method_40098", at = @At("RETURN"))
-    private void calio$cacheRegistryTags(List<?> list, Void void_, CallbackInfo ci) {
+    private void calio$publishRegistryTags(List<?> list, Void void_, CallbackInfo ci) {
 
-        Map<TagKey<?>, Collection<RegistryEntry<?>>> registryTagsCache = new HashMap<>();
-        this.registryTags.forEach(entry -> entry.tags().forEach((id, entries) ->
-            registryTagsCache.put(TagKey.of(entry.key(), id), (Collection) entries))
-        );
+        Map<RegistryKey<? extends Registry<?>>, Map<Identifier, ? extends Collection<? extends RegistryEntry<?>>>> registryTagsByKey = new HashMap<>();
+        this.registryTags.forEach(entry -> registryTagsByKey.put(entry.key(), entry.tags()));
 
-        Calio.REGISTRY_TAGS.set(registryTagsCache);
+        RegistryTagSnapshot snapshot = new RegistryTagSnapshot(registryTagsByKey);
+        RegistryTagSnapshot.publish(snapshot);
+
+        //  Still set for the mods that depend on it, until it's removed
+        Calio.REGISTRY_TAGS.set(snapshot.asTagKeyMap());
 
     }
 
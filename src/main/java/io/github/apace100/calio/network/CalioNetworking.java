@@ -1,9 +1,547 @@
 package io.github.apace100.calio.network;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import io.github.apace100.calio.Calio;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import it.unimi.dsi.fastutil.objects.Object2IntLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2LongLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import net.fabricmc.fabric.api.event.registry.RegistryAttribute;
+import net.fabricmc.fabric.api.event.registry.RegistryAttributeHolder;
+import net.fabricmc.fabric.api.networking.v1.PacketSender;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.Registry;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayNetworkHandler;
+import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 public class CalioNetworking {
 
     public static final Identifier SYNC_DATA_OBJECT_REGISTRY = new Identifier("calio", "sync_data_object_registry");
+
+    //  Sent to clients that can receive it instead of SYNC_DATA_OBJECT_REGISTRY; contains the hashes of the entries of a registry
+    public static final Identifier SYNC_DATA_OBJECT_HASHES = new Identifier("calio", "sync_data_object_hashes");
+
+    //  Sent by clients to request the entries of a registry they don't have cached, in response to SYNC_DATA_OBJECT_HASHES (or
+    //  every entry of the registry, if some of the requested entries changed while syncing them)
+    public static final Identifier REQUEST_DATA_OBJECTS = new Identifier("calio", "request_data_objects");
+
+    //  Sent in response to REQUEST_DATA_OBJECTS; contains a chunk of the requested entries of a registry
+    public static final Identifier SYNC_DATA_OBJECTS = new Identifier("calio", "sync_data_objects");
+
+    //  The maximum size of the (uncompressed) entries of a chunk. Entries that are larger than this are sent in a chunk of their own
+    public static final int MAX_CHUNK_SIZE = 256 * 1024;
+
+    //  The maximum size of a single encoded entry. A chunk can't be larger than the maximum size of a custom payload (1 MiB), so
+    //  entries that are larger than this (which leaves room for the headers of the chunk) are not synced at all
+    public static final int MAX_ENTRY_SIZE = 1024 * 1024 - 64 * 1024;
+
+    //  The maximum size of the IDs of a request. A request can't be larger than the maximum size of a custom payload sent by a
+    //  client (32767 bytes), so the IDs of a registry are split into as many requests as needed
+    public static final int MAX_REQUEST_SIZE = 30 * 1024;
+
+    //  The maximum size of the entries of a chunk when they are decompressed, to protect against maliciously compressed chunks
+    private static final int MAX_DECOMPRESSED_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    //  The delta syncs that each player can still request entries of, by the UUID of the player and the ID of their registry
+    private static final Map<UUID, Map<Identifier, DeltaSync>> DELTA_SYNCS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_SYNC_ID = new AtomicInteger();
+
+    //  The versions of the sync protocol. Clients register a global receiver for the channel of every version they support (see
+    //  getProtocolChannel), so that the server can sync to them in the newest version both sides support
+    public static final int PROTOCOL_LEGACY = 0;
+    public static final int PROTOCOL_CHUNKED = 1;
+    public static final int PROTOCOL_COMPACT = 2;
+    public static final int PROTOCOL_VERSION = PROTOCOL_COMPACT;
+
+    //  The flags of a sync profile, which are written in front of the hashes of SYNC_DATA_OBJECT_HASHES and determine how the
+    //  entries of SYNC_DATA_OBJECTS are encoded (see createSyncBuf)
+    public static final int PROFILE_RAW_REGISTRY_IDS = 1;
+    public static final int PROFILE_COMPACT = 2;
+    public static final int PROFILE_PRESENCE_HEADER = 4;
+
+    private static final Identifier[] PROTOCOL_CHANNELS = new Identifier[PROTOCOL_VERSION + 1];
+
+    private static long rawIdFingerprint;
+
+    static {
+        for (int version = PROTOCOL_CHUNKED; version <= PROTOCOL_VERSION; version++) {
+            PROTOCOL_CHANNELS[version] = new Identifier("calio", "sync_protocol_v" + version);
+        }
+    }
+
+    /**
+     *  @return the channel that marks support for the specified version of the sync protocol. Nothing is ever sent on it.
+     */
+    public static Identifier getProtocolChannel(int version) {
+
+        if (version <= PROTOCOL_LEGACY || version > PROTOCOL_VERSION) {
+            throw new IllegalArgumentException("Unknown sync protocol version " + version);
+        }
+
+        return PROTOCOL_CHANNELS[version];
+
+    }
+
+    /**
+     *  @return the newest version of the sync protocol that both the server and the specified player support.
+     */
+    public static int getProtocolVersion(ServerPlayerEntity player) {
+
+        for (int version = PROTOCOL_VERSION; version > PROTOCOL_LEGACY; version--) {
+            if (ServerPlayNetworking.canSend(player, PROTOCOL_CHANNELS[version])) {
+                return version;
+            }
+        }
+
+        return PROTOCOL_LEGACY;
+
+    }
+
+    /**
+     *  @return a buffer that reads from (or writes to) the specified buffer in the sync profile with the specified flags. Its
+     *  identifiers are read from (or written to) the specified palette.
+     */
+    public static SyncPacketByteBuf createSyncBuf(ByteBuf parent, @Nullable IdentifierPalette palette, int flags) {
+        return new SyncPacketByteBuf(parent, palette, (flags & PROFILE_RAW_REGISTRY_IDS) != 0, (flags & PROFILE_COMPACT) != 0, (flags & PROFILE_PRESENCE_HEADER) != 0);
+    }
+
+    /**
+     *  @return a hash of the raw IDs of the entries of every registry that is synced by the Fabric registry sync. Clients can only
+     *  keep the entries they cached from a profile that uses raw IDs (see {@link #PROFILE_RAW_REGISTRY_IDS}) for as long as this
+     *  doesn't change. It's only computed once, since the raw IDs of these registries don't change while the game is running.
+     */
+    public static synchronized long getRawIdFingerprint() {
+
+        if (rawIdFingerprint != 0L) {
+            return rawIdFingerprint;
+        }
+
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (Registry<?> registry : Registries.REGISTRIES) {
+
+            if (RegistryAttributeHolder.get(registry.getKey()).hasAttribute(RegistryAttribute.SYNCED)) {
+                hasher.putString(registry.getKey().getValue().toString(), StandardCharsets.UTF_8);
+                hashRawIds(hasher, registry);
+            }
+
+        }
+
+        rawIdFingerprint = hasher.hash().asLong();
+        return rawIdFingerprint;
+
+    }
+
+    private static <T> void hashRawIds(Hasher hasher, Registry<T> registry) {
+        for (T entry : registry) {
+            hasher
+                .putInt(registry.getRawId(entry))
+                .putString(String.valueOf(registry.getId(entry)), StandardCharsets.UTF_8);
+        }
+    }
+
+    public static void registerReceivers() {
+        ServerPlayNetworking.registerGlobalReceiver(REQUEST_DATA_OBJECTS, CalioNetworking::onDataObjectsRequest);
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> DELTA_SYNCS.remove(handler.player.getUuid()));
+    }
+
+    /**
+     *  Starts a delta sync of the specified registry with the specified player, which replaces the previous delta sync of the
+     *  registry with the player (if any). Until the next delta sync of the registry, the player can request each of the specified
+     *  entries once, and every entry once (see {@link #onDataObjectsRequest}); the entries are served from the specified map, so
+     *  that they match the hashes the player was sent even if the registry is reloaded in the meantime.
+     *
+     *  @return the ID of the delta sync, which the player has to echo in its requests
+     */
+    public static int startDeltaSync(ServerPlayerEntity player, Identifier registryId, Map<Identifier, byte[]> encodedEntries) {
+
+        int syncId = NEXT_SYNC_ID.getAndIncrement() & Integer.MAX_VALUE;
+        DELTA_SYNCS
+            .computeIfAbsent(player.getUuid(), uuid -> new ConcurrentHashMap<>())
+            .put(registryId, new DeltaSync(syncId, encodedEntries));
+
+        return syncId;
+
+    }
+
+    /**
+     *  Answers a request for entries of a registry, but only if it belongs to the latest delta sync of the registry with the
+     *  player, and only asks for entries the player was sent the hashes of and hasn't requested yet. Every entry can be requested
+     *  once per delta sync, after which the delta sync ends. Any other request is dropped, so that a client can't make the server
+     *  send more than it was offered.
+     */
+    private static void onDataObjectsRequest(MinecraftServer server, ServerPlayerEntity player, ServerPlayNetworkHandler handler, PacketByteBuf buf, PacketSender responseSender) {
+
+        Identifier registryId = buf.readIdentifier();
+        int syncId = buf.readVarInt();
+
+        boolean requestsAll = buf.readBoolean();
+        List<Identifier> requestedIds = requestsAll
+            ? List.of()
+            : buf.readList(PacketByteBuf::readIdentifier);
+
+        server.execute(() -> {
+
+            Map<Identifier, DeltaSync> deltaSyncs = DELTA_SYNCS.get(player.getUuid());
+            DeltaSync deltaSync = deltaSyncs != null
+                ? deltaSyncs.get(registryId)
+                : null;
+
+            //  Requests of a previous delta sync can still arrive after the registry has been synced again
+            if (deltaSync == null || deltaSync.syncId != syncId) {
+                Calio.LOGGER.debug("Dropped request of player \"{}\" for data objects of registry \"{}\" from an outdated or unknown sync", player.getName().getString(), registryId);
+                return;
+            }
+
+            Map<Identifier, byte[]> responseEntries;
+            if (requestsAll) {
+                deltaSyncs.remove(registryId, deltaSync);
+                responseEntries = deltaSync.encodedEntries;
+            }
+
+            else {
+
+                responseEntries = new LinkedHashMap<>(requestedIds.size());
+                for (Identifier id : requestedIds) {
+
+                    if (!deltaSync.requestableIds.remove(id)) {
+                        Calio.LOGGER.warn("Dropped request of player \"{}\" for data objects of registry \"{}\": entry \"{}\" wasn't offered or was already requested", player.getName().getString(), registryId, id);
+                        return;
+                    }
+
+                    responseEntries.put(id, deltaSync.encodedEntries.get(id));
+
+                }
+
+            }
+
+            for (PacketByteBuf chunk : writeChunks(registryId, syncId, responseEntries)) {
+                responseSender.sendPacket(SYNC_DATA_OBJECTS, chunk);
+            }
+
+        });
+
+    }
+
+    /**
+     *  Writes the specified hashes of the entries of a registry. In the compact profile, the namespaces of the IDs are written
+     *  once in front of the hashes, and each ID is written as the index of its namespace and its path.
+     */
+    public static void writeHashes(PacketByteBuf buf, Object2LongMap<Identifier> hashes, boolean compact) {
+
+        if (!compact) {
+
+            buf.writeVarInt(hashes.size());
+            for (Object2LongMap.Entry<Identifier> entry : hashes.object2LongEntrySet()) {
+                buf.writeIdentifier(entry.getKey());
+                buf.writeLong(entry.getLongValue());
+            }
+
+            return;
+
+        }
+
+        Object2IntMap<String> namespaces = new Object2IntLinkedOpenHashMap<>();
+        for (Identifier id : hashes.keySet()) {
+            namespaces.putIfAbsent(id.getNamespace(), namespaces.size());
+        }
+
+        buf.writeCollection(namespaces.keySet(), PacketByteBuf::writeString);
+        buf.writeVarInt(hashes.size());
+
+        for (Object2LongMap.Entry<Identifier> entry : hashes.object2LongEntrySet()) {
+
+            Identifier id = entry.getKey();
+
+            buf.writeVarInt(namespaces.getInt(id.getNamespace()));
+            buf.writeString(id.getPath());
+            buf.writeLong(entry.getLongValue());
+
+        }
+
+    }
+
+    /**
+     *  @return the hashes written by {@link #writeHashes(PacketByteBuf, Object2LongMap, boolean)}, in the order they were written
+     *  in.
+     */
+    public static Object2LongMap<Identifier> readHashes(PacketByteBuf buf, boolean compact) {
+
+        List<String> namespaces = compact
+            ? buf.readList(PacketByteBuf::readString)
+            : List.of();
+
+        int entryCount = buf.readVarInt();
+        Object2LongMap<Identifier> hashes = new Object2LongLinkedOpenHashMap<>(entryCount);
+
+        for (int i = 0; i < entryCount; i++) {
+
+            Identifier id;
+            if (compact) {
+
+                int namespaceIndex = buf.readVarInt();
+                if (namespaceIndex < 0 || namespaceIndex >= namespaces.size()) {
+                    throw new DecoderException("Namespace index " + namespaceIndex + " is out of bounds for " + namespaces.size() + " namespaces");
+                }
+
+                id = new Identifier(namespaces.get(namespaceIndex), buf.readString());
+
+            }
+
+            else {
+                id = buf.readIdentifier();
+            }
+
+            hashes.put(id, buf.readLong());
+
+        }
+
+        return hashes;
+
+    }
+
+    /**
+     *  Splits the specified IDs into requests of the entries of the specified registry, so that each request fits into a single
+     *  custom payload. The server responds to each request separately, with the specified sync ID (see
+     *  {@link #writeChunks(Identifier, int, Map)}).
+     */
+    public static List<PacketByteBuf> writeRequests(Identifier registryId, int syncId, Collection<Identifier> ids) {
+
+        List<List<Identifier>> batches = new ArrayList<>();
+        List<Identifier> batch = new ArrayList<>();
+
+        int batchSize = 0;
+        for (Identifier id : ids) {
+
+            int idSize = ByteBufUtil.utf8Bytes(id.toString()) + 3;
+            if (!batch.isEmpty() && batchSize + idSize > MAX_REQUEST_SIZE) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                batchSize = 0;
+            }
+
+            batch.add(id);
+            batchSize += idSize;
+
+        }
+
+        batches.add(batch);
+        List<PacketByteBuf> requests = new ArrayList<>(batches.size());
+
+        for (List<Identifier> requestedIds : batches) {
+
+            PacketByteBuf request = new PacketByteBuf(Unpooled.buffer());
+
+            request.writeIdentifier(registryId);
+            request.writeVarInt(syncId);
+            request.writeBoolean(false);
+            request.writeCollection(requestedIds, PacketByteBuf::writeIdentifier);
+
+            requests.add(request);
+
+        }
+
+        return requests;
+
+    }
+
+    /**
+     *  @return a request of every entry of the specified registry, which the server responds to with its current entries (see
+     *  {@link #writeChunks(Identifier, int, Map)}).
+     */
+    public static PacketByteBuf writeFullRequest(Identifier registryId, int syncId) {
+
+        PacketByteBuf request = new PacketByteBuf(Unpooled.buffer());
+
+        request.writeIdentifier(registryId);
+        request.writeVarInt(syncId);
+        request.writeBoolean(true);
+
+        return request;
+
+    }
+
+    /**
+     *  Splits the specified encoded entries into batches of whole entries, and writes each batch into a chunk. The written batch
+     *  is compressed if that makes it smaller. Each chunk starts with the ID of the registry, the specified sync ID, its index and
+     *  the amount of chunks, followed by the written batch, which can be read with {@link #readChunkEntries(PacketByteBuf,
+     *  BiConsumer)}. There is always at least one chunk. Entries that are larger than {@link #MAX_ENTRY_SIZE} are expected to have
+     *  been excluded already.
+     */
+    public static List<PacketByteBuf> writeChunks(Identifier registryId, int syncId, Map<Identifier, byte[]> encodedEntries) {
+
+        List<List<Map.Entry<Identifier, byte[]>>> batches = new ArrayList<>();
+        List<Map.Entry<Identifier, byte[]>> batch = new ArrayList<>();
+
+        int batchSize = 0;
+        for (Map.Entry<Identifier, byte[]> entry : encodedEntries.entrySet()) {
+
+            int entrySize = entry.getKey().toString().length() + entry.getValue().length + 8;
+            if (!batch.isEmpty() && batchSize + entrySize > MAX_CHUNK_SIZE) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                batchSize = 0;
+            }
+
+            batch.add(entry);
+            batchSize += entrySize;
+
+        }
+
+        batches.add(batch);
+        List<PacketByteBuf> chunks = new ArrayList<>(batches.size());
+
+        for (int i = 0; i < batches.size(); i++) {
+
+            PacketByteBuf batchBuf = new PacketByteBuf(Unpooled.buffer());
+            batchBuf.writeCollection(batches.get(i), (entryBuf, entry) -> {
+                entryBuf.writeIdentifier(entry.getKey());
+                entryBuf.writeByteArray(entry.getValue());
+            });
+
+            PacketByteBuf chunk = new PacketByteBuf(Unpooled.buffer());
+
+            chunk.writeIdentifier(registryId);
+            chunk.writeVarInt(syncId);
+            chunk.writeVarInt(i);
+            chunk.writeVarInt(batches.size());
+
+            writeCompressed(chunk, batchBuf);
+            chunks.add(chunk);
+
+        }
+
+        return chunks;
+
+    }
+
+    /**
+     *  Reads the entries of a chunk written by {@link #writeChunks(Identifier, int, Map)}, after its header has been read. Entries
+     *  that are larger than {@link #MAX_ENTRY_SIZE} are rejected.
+     */
+    public static void readChunkEntries(PacketByteBuf chunk, BiConsumer<Identifier, byte[]> entryConsumer) {
+
+        PacketByteBuf entries = readCompressed(chunk);
+        int entryCount = entries.readVarInt();
+
+        for (int i = 0; i < entryCount; i++) {
+            entryConsumer.accept(entries.readIdentifier(), entries.readByteArray(MAX_ENTRY_SIZE));
+        }
+
+    }
+
+    private static void writeCompressed(PacketByteBuf buf, PacketByteBuf uncompressed) {
+
+        byte[] uncompressedBytes = new byte[uncompressed.readableBytes()];
+        uncompressed.readBytes(uncompressedBytes);
+
+        Deflater deflater = new Deflater();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(uncompressedBytes.length / 2 + 16);
+
+        try {
+
+            deflater.setInput(uncompressedBytes);
+            deflater.finish();
+
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+
+        } finally {
+            deflater.end();
+        }
+
+        if (compressed.size() < uncompressedBytes.length) {
+            buf.writeBoolean(true);
+            buf.writeVarInt(uncompressedBytes.length);
+            buf.writeByteArray(compressed.toByteArray());
+        }
+
+        else {
+            buf.writeBoolean(false);
+            buf.writeBytes(uncompressedBytes);
+        }
+
+    }
+
+    private static PacketByteBuf readCompressed(PacketByteBuf buf) {
+
+        if (!buf.readBoolean()) {
+            return buf;
+        }
+
+        int uncompressedLength = buf.readVarInt();
+        if (uncompressedLength < 0 || uncompressedLength > MAX_DECOMPRESSED_CHUNK_SIZE) {
+            throw new DecoderException("Chunk is too large when decompressed (" + uncompressedLength + " bytes)");
+        }
+
+        byte[] compressed = buf.readByteArray();
+        byte[] uncompressed = new byte[uncompressedLength];
+
+        Inflater inflater = new Inflater();
+        try {
+
+            inflater.setInput(compressed);
+            int inflatedLength = inflater.inflate(uncompressed);
+
+            if (inflatedLength != uncompressedLength || !inflater.finished()) {
+                throw new DecoderException("Chunk doesn't match its decompressed length of " + uncompressedLength + " bytes");
+            }
+
+        } catch (DataFormatException e) {
+            throw new DecoderException("Couldn't decompress chunk", e);
+        } finally {
+            inflater.end();
+        }
+
+        return new PacketByteBuf(Unpooled.wrappedBuffer(uncompressed));
+
+    }
+
+    /**
+     *  The entries of a registry offered to a player by a delta sync (encoded in the sync profile of the player), and the IDs of
+     *  the entries the player can still request. Only accessed on the server thread once created.
+     */
+    private static final class DeltaSync {
+
+        private final int syncId;
+        private final Map<Identifier, byte[]> encodedEntries;
+        private final Set<Identifier> requestableIds;
+
+        private DeltaSync(int syncId, Map<Identifier, byte[]> encodedEntries) {
+            this.syncId = syncId;
+            this.encodedEntries = encodedEntries;
+            this.requestableIds = new HashSet<>(encodedEntries.keySet());
+        }
+
+    }
+
 }
@@ -1,6 +1,10 @@
 package io.github.apace100.calio.network;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.apace100.calio.Calio;
 import io.github.apace100.calio.registry.DataObjectRegistry;
+import io.github.apace100.calio.registry.DataObjectRegistryEvents;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
@@ -10,10 +14,44 @@ import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayNetworkHandler;
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
 
 @Environment(EnvType.CLIENT)
 public class CalioNetworkingClient {
 
+    //  The maximum amount of servers whose data objects are cached. The data objects of the server that was joined least recently
+    //  are discarded first
+    private static final int MAX_CACHED_SERVERS = 4;
+
+    //  The encoded data objects received from each server, by the address of the server and the ID of their registry. Kept for
+    //  the rest of the session, so that rejoining a server only requires receiving the data objects that have changed. Only the
+    //  current entries of each registry are kept
+    private static final Map<String, Map<Identifier, RegistryCache>> DATA_OBJECT_CACHE = Collections.synchronizedMap(new LinkedHashMap<String, Map<Identifier, RegistryCache>>(16, 0.75F, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<Identifier, RegistryCache>> eldest) {
+            return size() > MAX_CACHED_SERVERS;
+        }
+
+    });
+
+    //  The syncs of the current server that are waiting for requested data objects, by the ID of their registry. The chunks of a
+    //  sync are assembled here (instead of in the registry), and only the latest sync of each registry is kept
+    private static final Map<Identifier, PendingSync> PENDING_SYNCS = new ConcurrentHashMap<>();
+
+    //  Decodes the synced data objects, so that large syncs don't block the network thread. A single thread, so that the chunks of
+    //  a sync (and consecutive syncs of a registry) are decoded in the order they were received in
+    private static final ExecutorService DECODER = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("Calio Sync Decoder")
+        .setDaemon(true)
+        .build());
+
     public static void registerReceivers() {
         ClientPlayConnectionEvents.INIT.register(((clientPlayNetworkHandler, minecraftClient) -> {
             ClientPlayNetworking.registerReceiver(
@@ -21,6 +59,14 @@ public class CalioNetworkingClient {
                 CalioNetworkingClient::onDataObjectRegistrySync
             );
         }));
+        ClientPlayConnectionEvents.DISCONNECT.register((clientPlayNetworkHandler, minecraftClient) -> PENDING_SYNCS.clear());
+        //  Registered globally, so that the server knows that this client supports delta syncing as soon as it joins
+        ClientPlayNetworking.registerGlobalReceiver(CalioNetworking.SYNC_DATA_OBJECT_HASHES, CalioNetworkingClient::onDataObjectHashesSync);
+        ClientPlayNetworking.registerGlobalReceiver(CalioNetworking.SYNC_DATA_OBJECTS, CalioNetworkingClient::onDataObjectsSync);
+        //  Registered only to tell the server which versions of the sync protocol this client supports
+        for(int version = CalioNetworking.PROTOCOL_CHUNKED; version <= CalioNetworking.PROTOCOL_VERSION; version++) {
+            ClientPlayNetworking.registerGlobalReceiver(CalioNetworking.getProtocolChannel(version), (client, handler, buf, responseSender) -> {});
+        }
     }
 
     private static void onDataObjectRegistrySync(
@@ -29,10 +75,289 @@ public class CalioNetworkingClient {
         PacketByteBuf packetByteBuf,
         PacketSender packetSender) {
         Identifier registryId = packetByteBuf.readIdentifier();
-        DataObjectRegistry.getRegistry(registryId).receive(packetByteBuf,
-            minecraftClient.isIntegratedServerRunning() ? r -> {} : minecraftClient::execute);
-        /*minecraftClient.execute(() -> {
-            DataObjectRegistry.getRegistry(registryId).receive(packetByteBuf);
-        });*/
+        decode(minecraftClient, registryId, packetByteBuf, (registry, buf) -> registry.receive(buf, minecraftClient::execute));
+    }
+
+    /**
+     *  Decodes the rest of the specified buffer with the specified decoder on the {@link #DECODER} thread. The buffer is retained
+     *  until it has been decoded. On an integrated server, which shares its registries with the client, nothing is decoded, and
+     *  {@link DataObjectRegistryEvents#SYNCED} is invoked right away instead.
+     */
+    private static void decode(MinecraftClient minecraftClient, Identifier registryId, PacketByteBuf buf, BiConsumer<DataObjectRegistry<?>, PacketByteBuf> decoder) {
+
+        DataObjectRegistry<?> registry = DataObjectRegistry.getRegistry(registryId);
+        if (registry == null) {
+            Calio.LOGGER.warn("Received sync of unknown data object registry \"{}\"", registryId);
+            return;
+        }
+
+        if (minecraftClient.isIntegratedServerRunning()) {
+            minecraftClient.execute(() -> DataObjectRegistryEvents.SYNCED.invoker().onSynced(registry));
+            return;
+        }
+
+        PacketByteBuf retainedBuf = new PacketByteBuf(buf.retainedSlice());
+        DECODER.execute(() -> {
+
+            try {
+                decoder.accept(registry, retainedBuf);
+            } catch (Exception e) {
+                Calio.LOGGER.error("Couldn't decode sync of data object registry \"{}\": {}", registryId, e.toString());
+            } finally {
+                retainedBuf.release();
+            }
+
+        });
+
+    }
+
+    private static void onDataObjectHashesSync(
+        MinecraftClient minecraftClient,
+        ClientPlayNetworkHandler clientPlayNetworkHandler,
+        PacketByteBuf packetByteBuf,
+        PacketSender packetSender) {
+
+        Identifier registryId = packetByteBuf.readIdentifier();
+        int syncId = packetByteBuf.readVarInt();
+
+        int flags = packetByteBuf.readUnsignedByte();
+        long rawIdFingerprint = (flags & CalioNetworking.PROFILE_RAW_REGISTRY_IDS) != 0
+            ? packetByteBuf.readLong()
+            : 0L;
+
+        IdentifierPalette palette = IdentifierPalette.read(packetByteBuf);
+        Object2LongMap<Identifier> hashes = CalioNetworking.readHashes(packetByteBuf, (flags & CalioNetworking.PROFILE_COMPACT) != 0);
+
+        //  The integrated server shares its registries with the client
+        if (minecraftClient.isIntegratedServerRunning()) {
+            decode(minecraftClient, registryId, packetByteBuf, (registry, buf) -> {});
+            return;
+        }
+
+        DataObjectRegistry<?> registry = DataObjectRegistry.getRegistry(registryId);
+        if (registry == null) {
+            Calio.LOGGER.warn("Received sync of unknown data object registry \"{}\"", registryId);
+            return;
+        }
+
+        Map<Identifier, CachedDataObject> cache = getCache(clientPlayNetworkHandler, registryId, flags, rawIdFingerprint, palette);
+        PendingSync pendingSync = new PendingSync(syncId, flags, palette, hashes, cache, registry.startIncrementalSync(palette, flags), false);
+
+        List<Identifier> missingIds = new ArrayList<>();
+        Map<Identifier, byte[]> cachedEntries = new HashMap<>();
+
+        for (Object2LongMap.Entry<Identifier> entry : hashes.object2LongEntrySet()) {
+
+            CachedDataObject cached = cache.get(entry.getKey());
+            if (cached == null || cached.hash() != entry.getLongValue()) {
+                missingIds.add(entry.getKey());
+            }
+
+            else {
+                cachedEntries.put(entry.getKey(), cached.encoded());
+            }
+
+        }
+
+        //  The cached entries are decoded while the missing entries are requested
+        decode(registryId, pendingSync, cachedEntries);
+        if (missingIds.isEmpty()) {
+            PENDING_SYNCS.remove(registryId);
+            commit(minecraftClient, registryId, pendingSync, packetSender);
+            return;
+        }
+
+        List<PacketByteBuf> requests = CalioNetworking.writeRequests(registryId, pendingSync.syncId, missingIds);
+        pendingSync.remainingResponses = requests.size();
+
+        PENDING_SYNCS.put(registryId, pendingSync);
+        requests.forEach(request -> packetSender.sendPacket(CalioNetworking.REQUEST_DATA_OBJECTS, request));
+
+    }
+
+    private static void onDataObjectsSync(
+        MinecraftClient minecraftClient,
+        ClientPlayNetworkHandler clientPlayNetworkHandler,
+        PacketByteBuf packetByteBuf,
+        PacketSender packetSender) {
+
+        Identifier registryId = packetByteBuf.readIdentifier();
+        int syncId = packetByteBuf.readVarInt();
+        int chunkIndex = packetByteBuf.readVarInt();
+        int chunkCount = packetByteBuf.readVarInt();
+
+        PendingSync pendingSync = PENDING_SYNCS.get(registryId);
+        if (pendingSync == null || pendingSync.syncId != syncId) {
+            return;
+        }
+
+        //  In a delta sync, entries that don't match their hash aren't decoded, as commit requests a full sync instead
+        Map<Identifier, byte[]> chunkEntries = new HashMap<>();
+        CalioNetworking.readChunkEntries(packetByteBuf, (entryId, encoded) -> {
+
+            long hash = DataObjectRegistry.hashEncoded(encoded);
+            pendingSync.cache.put(entryId, new CachedDataObject(hash, encoded));
+            if (pendingSync.fullIds != null) {
+                pendingSync.fullIds.add(entryId);
+                chunkEntries.put(entryId, encoded);
+            }
+
+            else if (pendingSync.hashes.containsKey(entryId) && pendingSync.hashes.getLong(entryId) == hash) {
+                chunkEntries.put(entryId, encoded);
+            }
+
+        });
+
+        decode(registryId, pendingSync, chunkEntries);
+
+        //  The chunks of each response are received in order, so a request has been answered once its final chunk is received
+        if (chunkIndex < chunkCount - 1 || --pendingSync.remainingResponses > 0) {
+            return;
+        }
+
+        PENDING_SYNCS.remove(registryId);
+        if (pendingSync.fullIds != null) {
+            pendingSync.cache.keySet().retainAll(pendingSync.fullIds);
+            swap(minecraftClient, registryId, pendingSync, pendingSync.fullIds);
+        }
+
+        else {
+            commit(minecraftClient, registryId, pendingSync, packetSender);
+        }
+
+    }
+
+    /**
+     *  Decodes the specified entries of the specified sync on the {@link #DECODER} thread, as they are received, so that
+     *  committing the sync only has to replace the entries of the registry.
+     */
+    private static void decode(Identifier registryId, PendingSync pendingSync, Map<Identifier, byte[]> encodedEntries) {
+
+        if (encodedEntries.isEmpty()) {
+            return;
+        }
+
+        DECODER.execute(() -> {
+
+            try {
+                encodedEntries.forEach(pendingSync.decoding::decode);
+            } catch (Exception e) {
+                Calio.LOGGER.error("Couldn't decode sync of data object registry \"{}\": {}", registryId, e.toString());
+            }
+
+        });
+
+    }
+
+    private static void commit(MinecraftClient minecraftClient, Identifier registryId, PendingSync pendingSync, PacketSender packetSender) {
+
+        Object2LongMap<Identifier> hashes = pendingSync.hashes;
+        Map<Identifier, CachedDataObject> cache = pendingSync.cache;
+
+        for (Object2LongMap.Entry<Identifier> entry : hashes.object2LongEntrySet()) {
+
+            Identifier entryId = entry.getKey();
+            CachedDataObject cached = cache.get(entryId);
+
+            //  The server serves the entries it sent the hashes of, so this only happens if a response went missing or was
+            //  corrupted, in which case every entry is requested instead (once per sync), so that the registry is synced as a whole
+            if (cached == null || cached.hash() != entry.getLongValue()) {
+
+                Calio.LOGGER.warn("Entry \"{}\" of data object registry \"{}\" was changed while syncing; requesting every entry of the registry", entryId, registryId);
+
+                DataObjectRegistry<?> registry = DataObjectRegistry.getRegistry(registryId);
+                PendingSync fullSync = new PendingSync(pendingSync.syncId, pendingSync.flags, pendingSync.palette, hashes, cache, registry.startIncrementalSync(pendingSync.palette, pendingSync.flags), true);
+                fullSync.remainingResponses = 1;
+
+                PENDING_SYNCS.put(registryId, fullSync);
+                packetSender.sendPacket(CalioNetworking.REQUEST_DATA_OBJECTS, CalioNetworking.writeFullRequest(registryId, fullSync.syncId));
+
+                return;
+
+            }
+
+        }
+
+        cache.keySet().retainAll(hashes.keySet());
+        swap(minecraftClient, registryId, pendingSync, hashes.keySet());
+
     }
+
+    /**
+     *  Replaces the entries of the registry with the decoded entries of the specified sync, once the entries that are still
+     *  being decoded on the {@link #DECODER} thread have been decoded.
+     */
+    private static void swap(MinecraftClient minecraftClient, Identifier registryId, PendingSync pendingSync, Collection<Identifier> ids) {
+
+        DECODER.execute(() -> {
+
+            try {
+                pendingSync.decoding.commit(ids, minecraftClient::execute);
+            } catch (Exception e) {
+                Calio.LOGGER.error("Couldn't decode sync of data object registry \"{}\": {}", registryId, e.toString());
+            }
+
+        });
+
+    }
+
+    /**
+     *  @return the cached entries of the specified registry from the current server. The cached entries are discarded if they
+     *  were cached in a different sync profile, with a different raw ID fingerprint, or with an identifier palette that the
+     *  specified palette doesn't extend, as they can't be decoded anymore.
+     */
+    private static Map<Identifier, CachedDataObject> getCache(ClientPlayNetworkHandler clientPlayNetworkHandler, Identifier registryId, int flags, long rawIdFingerprint, IdentifierPalette palette) {
+
+        String serverAddress = String.valueOf(clientPlayNetworkHandler.getConnection().getAddress());
+
+        Map<Identifier, RegistryCache> registryCaches = DATA_OBJECT_CACHE.computeIfAbsent(serverAddress, k -> new ConcurrentHashMap<>());
+        RegistryCache registryCache = registryCaches.get(registryId);
+
+        Map<Identifier, CachedDataObject> entries = registryCache != null && registryCache.flags() == flags && registryCache.rawIdFingerprint() == rawIdFingerprint && palette.extendsPalette(registryCache.palette())
+            ? registryCache.entries()
+            : new ConcurrentHashMap<>();
+
+        registryCaches.put(registryId, new RegistryCache(flags, rawIdFingerprint, palette, entries));
+        return entries;
+
+    }
+
+    private record RegistryCache(int flags, long rawIdFingerprint, IdentifierPalette palette, Map<Identifier, CachedDataObject> entries) {
+
+    }
+
+    private record CachedDataObject(long hash, byte[] encoded) {
+
+    }
+
+    /**
+     *  A sync of a registry whose requests haven't all been answered yet. Only accessed on the network thread, except for its
+     *  decoded entries, which are only accessed on the {@link #DECODER} thread. A full sync collects the IDs of every entry it
+     *  receives, which are then synced as they are, instead of being checked against the hashes.
+     */
+    private static final class PendingSync {
+
+        private final int syncId;
+        private final int flags;
+        private final IdentifierPalette palette;
+        private final Object2LongMap<Identifier> hashes;
+        private final Map<Identifier, CachedDataObject> cache;
+        private final DataObjectRegistry<?>.IncrementalSync decoding;
+
+        @Nullable
+        private final Set<Identifier> fullIds;
+        private int remainingResponses;
+
+        private PendingSync(int syncId, int flags, IdentifierPalette palette, Object2LongMap<Identifier> hashes, Map<Identifier, CachedDataObject> cache, DataObjectRegistry<?>.IncrementalSync decoding, boolean full) {
+            this.syncId = syncId;
+            this.flags = flags;
+            this.palette = palette;
+            this.hashes = hashes;
+            this.cache = cache;
+            this.decoding = decoding;
+            this.fullIds = full ? new LinkedHashSet<>() : null;
+        }
+
+    }
+
 }
@@ -0,0 +1,87 @@
+package io.github.apace100.calio.network;
+
+import io.netty.handler.codec.DecoderException;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *  A table of the distinct identifiers of a payload, so that each identifier in the payload can be written as its index in the
+ *  table instead of as a string. The table itself is written once, in front of the payload.
+ *
+ *  @see SyncPacketByteBuf
+ */
+public class IdentifierPalette {
+
+    private final Object2IntMap<Identifier> indices = new Object2IntOpenHashMap<>();
+    private final List<Identifier> identifiers = new ArrayList<>();
+
+    public IdentifierPalette() {
+        this.indices.defaultReturnValue(-1);
+    }
+
+    /**
+     *  @return the index of the specified identifier, adding it to this palette if it's not in it yet.
+     */
+    public int getOrAdd(Identifier id) {
+
+        int index = indices.getInt(id);
+        if (index == -1) {
+
+            index = identifiers.size();
+
+            identifiers.add(id);
+            indices.put(id, index);
+
+        }
+
+        return index;
+
+    }
+
+    public Identifier get(int index) {
+
+        if (index < 0 || index >= identifiers.size()) {
+            throw new DecoderException("Identifier palette index " + index + " is out of bounds (size: " + identifiers.size() + ")");
+        }
+
+        return identifiers.get(index);
+
+    }
+
+    public int size() {
+        return identifiers.size();
+    }
+
+    /**
+     *  @return whether this palette starts with every identifier of the specified palette, at the same indices. Identifiers that
+     *  were written with the specified palette can then be read with this palette.
+     */
+    public boolean extendsPalette(IdentifierPalette palette) {
+        return palette.size() <= this.size()
+            && identifiers.subList(0, palette.size()).equals(palette.identifiers);
+    }
+
+    public void write(PacketByteBuf buf) {
+        buf.writeVarInt(identifiers.size());
+        identifiers.forEach(id -> buf.writeString(id.toString()));
+    }
+
+    public static IdentifierPalette read(PacketByteBuf buf) {
+
+        IdentifierPalette palette = new IdentifierPalette();
+        int size = buf.readVarInt();
+
+        for (int i = 0; i < size; i++) {
+            palette.getOrAdd(new Identifier(buf.readString(32767)));
+        }
+
+        return palette;
+
+    }
+
+}
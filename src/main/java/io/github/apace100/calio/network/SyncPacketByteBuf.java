@@ -0,0 +1,193 @@
+package io.github.apace100.calio.network;
+
+import io.netty.buffer.ByteBuf;
+import net.fabricmc.fabric.api.event.registry.RegistryAttribute;
+import net.fabricmc.fabric.api.event.registry.RegistryAttributeHolder;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.registry.Registry;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ *  A {@link PacketByteBuf} that carries the encoding options of the sync payload it belongs to. Data types that write identifiers
+ *  via {@link #writeIdentifier(Identifier)} (or registry keys via {@link #writeRegistryKey}) automatically use these options, and
+ *  data types of registry entries check them via {@link #usesRawIds(PacketByteBuf, Registry)}.
+ */
+public class SyncPacketByteBuf extends PacketByteBuf {
+
+    @Nullable
+    private final IdentifierPalette palette;
+    private final boolean rawRegistryIds;
+    private final boolean compact;
+    private final boolean presenceHeader;
+
+    public SyncPacketByteBuf(ByteBuf parent, @Nullable IdentifierPalette palette) {
+        this(parent, palette, false, false);
+    }
+
+    /**
+     *  @param palette          the palette that the identifiers are written to and read from as VarInt indices, or {@code null}
+     *                          to write and read them as strings
+     *  @param rawRegistryIds   whether the entries of synced registries are written and read as their raw IDs, which are only
+     *                          the same on both sides for the duration of a connection
+     *  @param compact          whether the compact profile is used, in which sizes, ordinals and ints are written as VarInts
+     *                          (see {@link #isCompact(PacketByteBuf)}), along with a presence header
+     */
+    public SyncPacketByteBuf(ByteBuf parent, @Nullable IdentifierPalette palette, boolean rawRegistryIds, boolean compact) {
+        this(parent, palette, rawRegistryIds, compact, compact);
+    }
+
+    /**
+     *  @param presenceHeader   whether serializable data are written with a presence header (see {@link
+     *                          #usesPresenceHeader(PacketByteBuf)})
+     */
+    public SyncPacketByteBuf(ByteBuf parent, @Nullable IdentifierPalette palette, boolean rawRegistryIds, boolean compact, boolean presenceHeader) {
+        super(parent);
+        this.palette = palette;
+        this.rawRegistryIds = rawRegistryIds;
+        this.compact = compact;
+        this.presenceHeader = presenceHeader;
+    }
+
+    @Nullable
+    public IdentifierPalette getPalette() {
+        return palette;
+    }
+
+    /**
+     *  @return whether the entries of the specified registry are written and read as their raw IDs (as VarInts) in the specified
+     *  buffer, instead of as their identifiers. Only applies to registries that are synced by the Fabric registry sync, since those
+     *  have the same raw IDs on both sides.
+     */
+    public static boolean usesRawIds(PacketByteBuf buf, Registry<?> registry) {
+        return buf instanceof SyncPacketByteBuf syncBuf
+            && syncBuf.rawRegistryIds
+            && RegistryAttributeHolder.get(registry.getKey()).hasAttribute(RegistryAttribute.SYNCED);
+    }
+
+    /**
+     *  Writes the specified registry entry as its raw ID if the specified buffer {@linkplain #usesRawIds(PacketByteBuf, Registry) uses
+     *  raw IDs} for the registry, or as its identifier otherwise.
+     */
+    public static <T> void writeRegistryEntry(PacketByteBuf buf, Registry<T> registry, T value) {
+
+        if (usesRawIds(buf, registry)) {
+            buf.writeVarInt(registry.getRawId(value));
+        }
+
+        else {
+            buf.writeIdentifier(Objects.requireNonNull(registry.getId(value)));
+        }
+
+    }
+
+    /**
+     *  @return whether the specified buffer uses the compact profile. In the compact profile, sizes are written as VarInts, signed
+     *  ints as zig-zag encoded VarInts and enum ordinals as bytes.
+     */
+    public static boolean isCompact(PacketByteBuf buf) {
+        return buf instanceof SyncPacketByteBuf syncBuf
+            && syncBuf.compact;
+    }
+
+    /**
+     *  @return whether {@link io.github.apace100.calio.data.SerializableData} packs the presence of its optional fields and the
+     *  values of its boolean fields into a header in the specified buffer, instead of writing a boolean for each of them whose
+     *  default is {@code null}.
+     */
+    public static boolean usesPresenceHeader(PacketByteBuf buf) {
+        return buf instanceof SyncPacketByteBuf syncBuf
+            && syncBuf.presenceHeader;
+    }
+
+    public static void writeSize(PacketByteBuf buf, int size) {
+
+        if (isCompact(buf)) {
+            buf.writeVarInt(size);
+        }
+
+        else {
+            buf.writeInt(size);
+        }
+
+    }
+
+    public static int readSize(PacketByteBuf buf) {
+        return isCompact(buf)
+            ? buf.readVarInt()
+            : buf.readInt();
+    }
+
+    public static void writeSignedInt(PacketByteBuf buf, int value) {
+
+        if (isCompact(buf)) {
+            buf.writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        else {
+            buf.writeInt(value);
+        }
+
+    }
+
+    public static int readSignedInt(PacketByteBuf buf) {
+
+        if (!isCompact(buf)) {
+            return buf.readInt();
+        }
+
+        int zigZag = buf.readVarInt();
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+
+    }
+
+    public static void writeOrdinal(PacketByteBuf buf, int ordinal, int constantCount) {
+
+        if (!isCompact(buf)) {
+            buf.writeInt(ordinal);
+        }
+
+        else if (constantCount <= 256) {
+            buf.writeByte(ordinal);
+        }
+
+        else {
+            buf.writeVarInt(ordinal);
+        }
+
+    }
+
+    public static int readOrdinal(PacketByteBuf buf, int constantCount) {
+
+        if (!isCompact(buf)) {
+            return buf.readInt();
+        }
+
+        return constantCount <= 256
+            ? buf.readUnsignedByte()
+            : buf.readVarInt();
+
+    }
+
+    @Override
+    public PacketByteBuf writeIdentifier(Identifier id) {
+
+        if (palette == null) {
+            return super.writeIdentifier(id);
+        }
+
+        this.writeVarInt(palette.getOrAdd(id));
+        return this;
+
+    }
+
+    @Override
+    public Identifier readIdentifier() {
+        return palette != null
+            ? palette.get(this.readVarInt())
+            : super.readIdentifier();
+    }
+
+}
@@ -1,26 +1,56 @@
 package io.github.apace100.calio.registry;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.mojang.datafixers.util.Pair;
+import io.github.apace100.calio.Calio;
 import io.github.apace100.calio.ClassUtil;
+import io.github.apace100.calio.data.DataFile;
 import io.github.apace100.calio.data.MultiJsonDataLoader;
+import io.github.apace100.calio.data.ParseContext;
+import io.github.apace100.calio.data.ResourceIndex;
 import io.github.apace100.calio.data.SerializableData;
 import io.github.apace100.calio.data.SerializableDataType;
 import io.github.apace100.calio.data.SerializableDataTypes;
 import io.github.apace100.calio.network.CalioNetworking;
+import io.github.apace100.calio.network.IdentifierPalette;
+import io.github.apace100.calio.util.OrderedParallel;
 import io.github.apace100.calio.util.OrderedResourceListeners;
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
 import net.fabricmc.fabric.api.resource.IdentifiableResourceReloadListener;
 import net.minecraft.network.PacketByteBuf;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.resource.Resource;
 import net.minecraft.resource.ResourceManager;
+import net.minecraft.resource.ResourceType;
+import net.minecraft.resource.SinglePreparationResourceReloader;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.InvalidIdentifierException;
 import net.minecraft.util.JsonHelper;
+import net.minecraft.util.Util;
 import net.minecraft.util.profiler.Profiler;
+import org.apache.commons.io.FilenameUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.quiltmc.parsers.json.JsonFormat;
+import org.quiltmc.parsers.json.gson.GsonReader;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -32,12 +62,26 @@ public class DataObjectRegistry<T extends DataObject<T>> {
     private static final HashMap<Identifier, DataObjectRegistry<?>> REGISTRIES = new HashMap<>();
     private static final Set<Identifier> AUTO_SYNC_SET = new HashSet<>();
 
+    //  The key of the sync profile of the legacy encoding, which is written to plain packet byte buffers
+    private static final int LEGACY_PROFILE = -1;
+
+    //  The name of the field that determines the loading priority of a data object, if the registry uses loading priorities
+    private static final String LOADING_PRIORITY = "loading_priority";
+
+    //  The registry whose data objects are being decoded concurrently by the current (worker) thread, if any
+    private static final ThreadLocal<DataObjectRegistry<?>> DECODING_REGISTRY = new ThreadLocal<>();
+
     private final Identifier registryId;
     private final Class<T> objectClass;
 
-    private final HashMap<Identifier, T> idToEntry = new HashMap<>();
-    private final HashMap<T, Identifier> entryToId = new HashMap<>();
-    private final HashMap<Identifier, T> staticEntries = new HashMap<>();
+    //  The entries of this registry. Replaced as a whole whenever the entries change, so that reads never see a partially
+    //  loaded or concurrently modified registry
+    private volatile Snapshot<T> snapshot = Snapshot.empty();
+    private volatile SnapshotBuilder pendingSnapshot;
+    //  The entries that reads from the threads that decode data objects concurrently see, which are only the static entries
+    //  (like they would see the cleared registry when decoding serially)
+    private volatile Snapshot<T> decodingSnapshot;
+    private final LinkedHashMap<Identifier, T> staticEntries = new LinkedHashMap<>();
 
     private final String factoryFieldName;
     private final DataObjectFactory<T> defaultFactory;
@@ -51,7 +95,31 @@ public class DataObjectRegistry<T extends DataObject<T>> {
 
     private final Function<JsonElement, JsonElement> jsonPreprocessor;
 
-    private Loader loader;
+    private IdentifiableResourceReloadListener loader;
+
+    //  The sync profiles of the current entries, by their profile flags (see getSyncProfile). Guarded by this registry, as syncs
+    //  aren't limited to the server thread
+    private Int2ObjectMap<SyncProfile> syncProfiles = new Int2ObjectOpenHashMap<>();
+    private boolean compactSync;
+
+    //  The entries that were last encoded in the legacy encoding (and in each sync profile), so that entries that are still
+    //  registered (e.g: because they were reused by an incremental reload) don't need to be encoded again. Guarded by this
+    //  registry
+    private Map<Identifier, EncodedEntry<T>> lastEncodedEntries = new HashMap<>();
+    private final Int2ObjectMap<Map<Identifier, EncodedEntry<T>>> lastProfileEntries = new Int2ObjectOpenHashMap<>();
+
+    //  The identifier palette that the entries of each sync profile are encoded with, which is shared by every entry. Identifiers
+    //  are only ever added to it, so that the encodings of entries (on both sides) stay valid when the palette grows
+    private final Int2ObjectMap<IdentifierPalette> profilePalettes = new Int2ObjectOpenHashMap<>();
+
+    //  The entries that were loaded by the last reload and the hashes of their sources, if reloads are incremental
+    private boolean incrementalReload;
+    private Map<Identifier, ReloadedEntry<T>> reloadedEntries = Map.of();
+
+    //  Whether the entries loaded from data are cached on disk, and whether that cache has been read yet (which it is by the
+    //  first reload, as later reloads can reuse the entries of the previous reload)
+    private boolean persistentCache;
+    private boolean persistentCacheRead;
 
     private DataObjectRegistry(Identifier registryId, Class<T> objectClass, String factoryFieldName, DataObjectFactory<T> defaultFactory, Function<JsonElement, JsonElement> jsonPreprocessor) {
         this.registryId = registryId;
@@ -61,9 +129,11 @@ public class DataObjectRegistry<T extends DataObject<T>> {
         this.jsonPreprocessor = jsonPreprocessor;
     }
 
-    private DataObjectRegistry(Identifier registryId, Class<T> objectClass, String factoryFieldName, DataObjectFactory<T> defaultFactory, Function<JsonElement, JsonElement> jsonPreprocessor, String dataFolder, boolean useLoadingPriority, BiConsumer<Identifier, Exception> errorHandler) {
+    private DataObjectRegistry(Identifier registryId, Class<T> objectClass, String factoryFieldName, DataObjectFactory<T> defaultFactory, Function<JsonElement, JsonElement> jsonPreprocessor, String dataFolder, boolean useLoadingPriority, BiConsumer<Identifier, Exception> errorHandler, boolean streamData, boolean parseInParallel, boolean decodeInParallel) {
         this(registryId, objectClass, factoryFieldName, defaultFactory, jsonPreprocessor);
-        loader = new Loader(dataFolder, useLoadingPriority, errorHandler);
+        loader = streamData
+            ? new StreamingLoader(dataFolder, useLoadingPriority, errorHandler, decodeInParallel)
+            : new Loader(dataFolder, useLoadingPriority, errorHandler, parseInParallel, decodeInParallel);
     }
 
     /**
@@ -81,7 +151,11 @@ public class DataObjectRegistry<T extends DataObject<T>> {
     }
 
     public Identifier getId(T entry) {
-        return entryToId.get(entry);
+        SnapshotBuilder pending = getPendingSnapshot();
+        if(pending != null) {
+            return pending.getId(entry);
+        }
+        return getSnapshot().entryToId().get(entry);
     }
 
     public DataObjectFactory<T> getFactory(Identifier id) {
@@ -97,28 +171,219 @@ public class DataObjectRegistry<T extends DataObject<T>> {
         factoryToId.put(factory, id);
     }
 
-    public void register(Identifier id, T entry) {
-        idToEntry.put(id, entry);
-        entryToId.put(entry, id);
+    /**
+     *  Registers the specified entry by copying the entries of this registry into a new snapshot, which makes this O(n). Entries
+     *  that are loaded from data or synced are registered in bulk instead, and entries that are registered while loading from
+     *  data (on the loading thread) are added to the entries that are being loaded.
+     */
+    public synchronized void register(Identifier id, T entry) {
+        SnapshotBuilder pending = getPendingSnapshot();
+        if(pending != null) {
+            pending.register(id, entry);
+            return;
+        }
+        SnapshotBuilder builder = new SnapshotBuilder(snapshot.idToEntry());
+        builder.register(id, entry);
+        publish(builder.build());
     }
 
-    public void registerStatic(Identifier id, T entry) {
+    public synchronized void registerStatic(Identifier id, T entry) {
         staticEntries.put(id, entry);
         register(id, entry);
     }
 
+    /**
+     *  Replaces the entries of this registry with the specified snapshot, with a single volatile write.
+     */
+    private synchronized void publish(Snapshot<T> snapshot) {
+        this.snapshot = snapshot;
+        this.syncProfiles = new Int2ObjectOpenHashMap<>();
+    }
+
+    /**
+     *  Builds the entries of this registry with the specified builder and then publishes them at once. While building, reads from
+     *  the building thread see the entries that have been registered to the builder so far (like they would if the entries were
+     *  registered one by one), and reads from other threads see the previous snapshot.
+     */
+    private void build(Consumer<SnapshotBuilder> action) {
+        SnapshotBuilder builder = new SnapshotBuilder(copyStaticEntries());
+        pendingSnapshot = builder;
+        try {
+            action.accept(builder);
+        } finally {
+            pendingSnapshot = null;
+        }
+        publish(builder.build());
+    }
+
+    /**
+     *  @return a copy of the static entries, which is taken under the same monitor that {@link #registerStatic(Identifier, DataObject)}
+     *  adds to them with, as they're copied from loading and decoding threads.
+     */
+    private synchronized Map<Identifier, T> copyStaticEntries() {
+        return new LinkedHashMap<>(staticEntries);
+    }
+
+    /**
+     *  @return the snapshot that reads from the calling thread see, if they don't see a pending snapshot.
+     */
+    private Snapshot<T> getSnapshot() {
+        Snapshot<T> decoding = decodingSnapshot;
+        return decoding != null && DECODING_REGISTRY.get() == this
+            ? decoding
+            : snapshot;
+    }
+
+    @Nullable
+    private SnapshotBuilder getPendingSnapshot() {
+        SnapshotBuilder pending = pendingSnapshot;
+        return pending != null && pending.owner == Thread.currentThread()
+            ? pending
+            : null;
+    }
+
     public void write(PacketByteBuf buf) {
-        buf.writeInt(idToEntry.size() - staticEntries.size());
-        for(Map.Entry<Identifier, T> entry : idToEntry.entrySet()) {
-            if(staticEntries.containsKey(entry.getKey())) {
+        writeEncodedEntries(buf, getSyncProfile(LEGACY_PROFILE).encodedEntries());
+    }
+
+    private static void writeEncodedEntries(PacketByteBuf buf, Map<Identifier, byte[]> encodedEntries) {
+        buf.writeInt(encodedEntries.size());
+        encodedEntries.forEach((id, encoded) -> {
+            buf.writeIdentifier(id);
+            buf.writeBytes(encoded);
+        });
+    }
+
+    /**
+     *  Writes the ID and the hash of the encoded data object of each non-static entry, so that clients can determine which
+     *  entries they need to request via {@link #getEncodedEntries(Collection)}.
+     */
+    public void writeHashes(PacketByteBuf buf) {
+        CalioNetworking.writeHashes(buf, getSyncProfile(LEGACY_PROFILE).hashes(), false);
+    }
+
+    /**
+     *  @return the encoded data objects of the specified non-static entries, by their IDs. Entries that are not in this registry
+     *  (anymore) are skipped.
+     */
+    public Map<Identifier, byte[]> getEncodedEntries(Collection<Identifier> ids) {
+        return selectEntries(getSyncProfile(LEGACY_PROFILE).encodedEntries(), ids);
+    }
+
+    private static Map<Identifier, byte[]> selectEntries(Map<Identifier, byte[]> encodedEntries, Collection<Identifier> ids) {
+        Map<Identifier, byte[]> requestedEntries = new LinkedHashMap<>();
+        for(Identifier id : ids) {
+            byte[] encoded = encodedEntries.get(id);
+            if(encoded != null) {
+                requestedEntries.put(id, encoded);
+            }
+        }
+        return requestedEntries;
+    }
+
+    /**
+     *  Encodes the non-static entries of this registry in the sync profile with the specified flags (and hashes them) if they
+     *  have changed since they were last encoded in it. The entries are usually encoded once per reload and profile, and then
+     *  shared by every sync that uses the profile. Synchronized, since players can be synced to from any thread, and a profile is
+     *  only built by the first of them.
+     */
+    private synchronized SyncProfile getSyncProfile(int flags) {
+        SyncProfile syncProfile = syncProfiles.get(flags);
+        if(syncProfile != null) {
+            return syncProfile;
+        }
+        Map<Identifier, byte[]> encodedEntries = new LinkedHashMap<>();
+        Object2LongMap<Identifier> hashes = new Object2LongLinkedOpenHashMap<>();
+        Map<Identifier, EncodedEntry<T>> previousEncodedEntries = flags == LEGACY_PROFILE ? lastEncodedEntries : lastProfileEntries.getOrDefault(flags, Map.of());
+        Map<Identifier, EncodedEntry<T>> currentEncodedEntries = new HashMap<>();
+        IdentifierPalette palette = flags == LEGACY_PROFILE ? null : profilePalettes.computeIfAbsent(flags, f -> new IdentifierPalette());
+        Map<Identifier, T> staticEntries = copyStaticEntries();
+        Snapshot<T> snapshot = this.snapshot;
+        snapshot.idToEntry().forEach((id, entry) -> {
+            if(staticEntries.containsKey(id)) {
                 // Static entries are added from code by mods,
                 // so they will not be synced to clients (as
                 // clients are assumed to have the same mods).
-                continue;
+                return;
             }
-            buf.writeIdentifier(entry.getKey());
-            writeDataObject(buf, entry.getValue());
+            EncodedEntry<T> encodedEntry = previousEncodedEntries.get(id);
+            if(encodedEntry == null || encodedEntry.dataObject() != entry) {
+                byte[] encoded = palette == null ? encodeDataObject(entry) : encodeDataObject(entry, palette, flags);
+                encodedEntry = new EncodedEntry<>(entry, encoded, hashEncoded(encoded));
+            }
+            currentEncodedEntries.put(id, encodedEntry);
+            if(encodedEntry.encoded().length > CalioNetworking.MAX_ENTRY_SIZE) {
+                Calio.LOGGER.error("Entry \"{}\" of data object registry \"{}\" is too large to be synced ({} bytes)", id, registryId, encodedEntry.encoded().length);
+                return;
+            }
+            encodedEntries.put(id, encodedEntry.encoded());
+            hashes.put(id, encodedEntry.hash());
+        });
+        if(flags == LEGACY_PROFILE) {
+            lastEncodedEntries = currentEncodedEntries;
+        } else {
+            lastProfileEntries.put(flags, currentEncodedEntries);
         }
+        syncProfile = new SyncProfile(registryId, flags, palette, Collections.unmodifiableMap(encodedEntries), hashes);
+        syncProfiles.put(flags, syncProfile);
+        return syncProfile;
+    }
+
+    /**
+     *  @return the flags of the sync profile that the entries are encoded in for the specified player (see
+     *  {@link CalioNetworking#createSyncBuf}).
+     */
+    private int getSyncFlags(ServerPlayerEntity player) {
+        //  Clients only keep the entries they cached with raw IDs while the raw ID fingerprint of the server stays the same
+        int flags = CalioNetworking.PROFILE_RAW_REGISTRY_IDS | CalioNetworking.PROFILE_PRESENCE_HEADER;
+        if(compactSync && CalioNetworking.getProtocolVersion(player) >= CalioNetworking.PROTOCOL_COMPACT) {
+            flags |= CalioNetworking.PROFILE_COMPACT;
+        }
+        return flags;
+    }
+
+    /**
+     *  @return the data object encoded exactly like {@link #writeDataObject(PacketByteBuf, DataObject)} writes it.
+     */
+    public byte[] encodeDataObject(T t) {
+        PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+        try {
+            writeDataObject(buf, t);
+            byte[] encoded = new byte[buf.readableBytes()];
+            buf.readBytes(encoded);
+            return encoded;
+        } finally {
+            buf.release();
+        }
+    }
+
+    public T decodeDataObject(byte[] encoded) {
+        return receiveDataObject(new PacketByteBuf(Unpooled.wrappedBuffer(encoded)));
+    }
+
+    /**
+     *  @return the data object encoded in the sync profile with the specified flags (see {@link CalioNetworking#createSyncBuf}).
+     *  The identifiers that the data object writes (e.g: its factory ID) are written as indices in the specified palette (adding
+     *  them to it if needed), which is shared by every entry of the sync profile and is sent once, with its hash list.
+     */
+    public byte[] encodeDataObject(T t, IdentifierPalette palette, int flags) {
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            writeDataObject(CalioNetworking.createSyncBuf(buf, palette, flags), t);
+            byte[] encoded = new byte[buf.readableBytes()];
+            buf.readBytes(encoded);
+            return encoded;
+        } finally {
+            buf.release();
+        }
+    }
+
+    public T decodeDataObject(byte[] encoded, IdentifierPalette palette, int flags) {
+        return receiveDataObject(CalioNetworking.createSyncBuf(Unpooled.wrappedBuffer(encoded), palette, flags));
+    }
+
+    public static long hashEncoded(byte[] encoded) {
+        return Hashing.murmur3_128().hashBytes(encoded).asLong();
     }
 
     public void writeDataObject(PacketByteBuf buf, T t) {
@@ -134,15 +399,55 @@ public class DataObjectRegistry<T extends DataObject<T>> {
 
     public void receive(PacketByteBuf buf, Consumer<Runnable> scheduler) {
         int entryCount = buf.readInt();
-        HashMap<Identifier, T> entries = new HashMap<>(entryCount);
+        LinkedHashMap<Identifier, T> entries = new LinkedHashMap<>(entryCount);
         for(int i = 0; i < entryCount; i++) {
             Identifier entryId = buf.readIdentifier();
             T entry = receiveDataObject(buf);
             entries.put(entryId, entry);
         }
+        replaceEntries(entries, scheduler);
+    }
+
+    /**
+     *  Replaces the entries of this registry with the specified encoded data objects, which were encoded with
+     *  {@link #encodeDataObject(DataObject)}.
+     */
+    public void receive(Map<Identifier, byte[]> encodedEntries, Consumer<Runnable> scheduler) {
+        LinkedHashMap<Identifier, T> entries = new LinkedHashMap<>(encodedEntries.size());
+        encodedEntries.forEach((entryId, encoded) -> entries.put(entryId, decodeDataObject(encoded)));
+        replaceEntries(entries, scheduler);
+    }
+
+    /**
+     *  Replaces the entries of this registry with the specified encoded data objects, which were encoded with
+     *  {@link #encodeDataObject(DataObject, IdentifierPalette, int)} in the sync profile with the specified flags.
+     */
+    public void receive(Map<Identifier, byte[]> encodedEntries, IdentifierPalette palette, int flags, Consumer<Runnable> scheduler) {
+        LinkedHashMap<Identifier, T> entries = new LinkedHashMap<>(encodedEntries.size());
+        encodedEntries.forEach((entryId, encoded) -> entries.put(entryId, decodeDataObject(encoded, palette, flags)));
+        replaceEntries(entries, scheduler);
+    }
+
+    /**
+     *  Starts a sync of this registry whose entries, encoded in the sync profile with the specified flags and the specified
+     *  palette, are decoded as they are received, so that committing it only has to replace the entries of this registry.
+     */
+    public IncrementalSync startIncrementalSync(IdentifierPalette palette, int flags) {
+        return new IncrementalSync(palette, flags);
+    }
+
+    /**
+     *  Builds a snapshot of the specified (synced) entries on the calling thread, and schedules replacing the entries of this
+     *  registry with it, after which {@link DataObjectRegistryEvents#SYNCED} is invoked. The scheduled task only publishes the
+     *  snapshot, so it doesn't block the thread it's scheduled on for longer than a volatile write.
+     */
+    private void replaceEntries(Map<Identifier, T> entries, Consumer<Runnable> scheduler) {
+        SnapshotBuilder builder = new SnapshotBuilder(copyStaticEntries());
+        entries.forEach(builder::register);
+        Snapshot<T> snapshot = builder.build();
         scheduler.accept(() -> {
-            clear();
-            entries.forEach(this::register);
+            publish(snapshot);
+            DataObjectRegistryEvents.SYNCED.invoker().onSynced(this);
         });
     }
 
@@ -154,6 +459,13 @@ public class DataObjectRegistry<T extends DataObject<T>> {
     }
 
     public T readDataObject(JsonElement element) {
+        return readDataObject(element, null);
+    }
+
+    /**
+     *  @param loadingPriority receives the loading priority of the data object (or {@code 0} if it has none), if not {@code null}
+     */
+    private T readDataObject(JsonElement element, @Nullable int[] loadingPriority) {
         if(jsonPreprocessor != null) {
             element = jsonPreprocessor.apply(element);
         }
@@ -169,57 +481,136 @@ public class DataObjectRegistry<T extends DataObject<T>> {
         }
         DataObjectFactory<T> factory;
         if(jsonObject.has(factoryFieldName)) {
-            String type = JsonHelper.getString(jsonObject, factoryFieldName);
-            Identifier factoryId = null;
-            try {
-                factoryId = new Identifier(type);
-            } catch (InvalidIdentifierException e) {
-                throw new JsonParseException(
-                    "Could not read data object of type \"" + registryId +
-                        "\": invalid factory identifier (id: \"" + factoryId + "\").", e);
-            }
-            if(!factoriesById.containsKey(factoryId)) {
-                throw new JsonParseException(
-                    "Could not read data object of type \"" + registryId +
-                        "\": unknown factory (id: \"" + factoryId + "\").");
-            }
-            factory = getFactory(factoryId);
+            factory = getFactory(JsonHelper.getString(jsonObject, factoryFieldName));
         } else {
             factory = defaultFactory;
         }
         SerializableData.Instance data = factory.getData().read(jsonObject);
+        if(loadingPriority != null) {
+            loadingPriority[0] = JsonHelper.getInt(jsonObject, LOADING_PRIORITY, 0);
+        }
         return factory.fromData(data);
     }
 
+    /**
+     *  Streams the next data object of the specified reader, binding its fields directly into the data instance of its factory.
+     *  The object is only read into a JSON element first if this registry has a JSON preprocessor, or if the factory field is not
+     *  the first field of the object.
+     */
+    public T readDataObject(JsonReader reader) throws IOException {
+        return readDataObject(reader, null);
+    }
+
+    /**
+     *  @param loadingPriority receives the loading priority of the data object (or {@code 0} if it has none), if not {@code null}.
+     *                         It's read whether or not the data of the factory declares a field for it.
+     */
+    private T readDataObject(JsonReader reader, @Nullable int[] loadingPriority) throws IOException {
+        if(jsonPreprocessor != null || reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return readDataObject(JsonParser.parseReader(reader), loadingPriority);
+        }
+        reader.beginObject();
+        if(!reader.hasNext()) {
+            reader.endObject();
+            return readDataObject(new JsonObject(), loadingPriority);
+        }
+        String name = reader.nextName();
+        if(name.equals(factoryFieldName) && reader.peek() == JsonToken.STRING) {
+            DataObjectFactory<T> factory = getFactory(reader.nextString());
+            SerializableData.Instance data = factory.getData().readFields(reader, loadingPriority == null ? null : (fieldName, fieldReader) -> {
+                if(!fieldName.equals(LOADING_PRIORITY)) {
+                    return false;
+                }
+                loadingPriority[0] = fieldReader.nextInt();
+                return true;
+            });
+            if(loadingPriority != null && factory.getData().getSlot(LOADING_PRIORITY) != -1 && data.isPresent(LOADING_PRIORITY) && data.get(LOADING_PRIORITY) instanceof Number number) {
+                loadingPriority[0] = number.intValue();
+            }
+            return factory.fromData(data);
+        }
+        JsonObject bufferedObject = new JsonObject();
+        bufferedObject.add(name, JsonParser.parseReader(reader));
+        while(reader.hasNext()) {
+            bufferedObject.add(reader.nextName(), JsonParser.parseReader(reader));
+        }
+        reader.endObject();
+        return readDataObject(bufferedObject, loadingPriority);
+    }
+
+    private DataObjectFactory<T> getFactory(String type) {
+        Identifier factoryId = null;
+        try {
+            factoryId = new Identifier(type);
+        } catch (InvalidIdentifierException e) {
+            throw new JsonParseException(
+                "Could not read data object of type \"" + registryId +
+                    "\": invalid factory identifier (id: \"" + factoryId + "\").", e);
+        }
+        if(!factoriesById.containsKey(factoryId)) {
+            throw new JsonParseException(
+                "Could not read data object of type \"" + registryId +
+                    "\": unknown factory (id: \"" + factoryId + "\").");
+        }
+        return getFactory(factoryId);
+    }
+
+    /**
+     *  Syncs the entries of this registry to the specified player. If the player supports it, only the hashes of the entries
+     *  (encoded in the sync profile of the player) are sent, after which the player requests the entries it doesn't have cached
+     *  yet (see {@link CalioNetworking#startDeltaSync}). Otherwise, every entry is sent in the legacy format.
+     */
     public void sync(ServerPlayerEntity player) {
-        PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+        if(CalioNetworking.getProtocolVersion(player) == CalioNetworking.PROTOCOL_LEGACY) {
+            ServerPlayNetworking.send(player, CalioNetworking.SYNC_DATA_OBJECT_REGISTRY, new PacketByteBuf(getSyncProfile(LEGACY_PROFILE).payload().duplicate()));
+            return;
+        }
+        SyncProfile syncProfile = getSyncProfile(getSyncFlags(player));
+        int syncId = CalioNetworking.startDeltaSync(player, registryId, syncProfile.encodedEntries());
+        ByteBuf hashes = syncProfile.payload();
+        PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer(hashes.readableBytes() + 64));
         buf.writeIdentifier(registryId);
-        write(buf);
-        ServerPlayNetworking.send(player, CalioNetworking.SYNC_DATA_OBJECT_REGISTRY, buf);
+        buf.writeVarInt(syncId);
+        buf.writeBytes(hashes, hashes.readerIndex(), hashes.readableBytes());
+        ServerPlayNetworking.send(player, CalioNetworking.SYNC_DATA_OBJECT_HASHES, buf);
     }
 
-    public void clear() {
-        idToEntry.clear();
-        entryToId.clear();
-        staticEntries.forEach(this::register);
+    public synchronized void clear() {
+        publish(new SnapshotBuilder(staticEntries).build());
     }
 
     @Nullable
     public T get(Identifier id) {
-        return idToEntry.get(id);
+        SnapshotBuilder pending = getPendingSnapshot();
+        if(pending != null) {
+            return pending.get(id);
+        }
+        return getSnapshot().idToEntry().get(id);
     }
 
     public Set<Identifier> getIds() {
-        return idToEntry.keySet();
+        SnapshotBuilder pending = getPendingSnapshot();
+        if(pending != null) {
+            return Collections.unmodifiableSet(pending.idToEntry.keySet());
+        }
+        return getSnapshot().idToEntry().keySet();
     }
 
     public boolean containsId(Identifier id) {
-        return idToEntry.containsKey(id);
+        SnapshotBuilder pending = getPendingSnapshot();
+        if(pending != null) {
+            return pending.containsId(id);
+        }
+        return getSnapshot().idToEntry().containsKey(id);
     }
 
     @NotNull
     public Iterator<T> iterator() {
-        return idToEntry.values().iterator();
+        SnapshotBuilder pending = getPendingSnapshot();
+        if(pending != null) {
+            return Collections.unmodifiableCollection(pending.idToEntry.values()).iterator();
+        }
+        return getSnapshot().values().iterator();
     }
 
     public SerializableDataType<T> dataType() {
@@ -277,52 +668,578 @@ public class DataObjectRegistry<T extends DataObject<T>> {
         }
     }
 
+    /**
+     *  Decodes each of the specified sources into a data object concurrently on the main worker executor. Each source is decoded
+     *  within the {@link ParseContext} of its ID, and with the dynamic registries (and registry tags) of the calling thread. Reads
+     *  from this registry while decoding only see its static entries, like they would see the cleared registry before the first
+     *  data object is registered when decoding serially.
+     *
+     *  @return the decoded data objects, in the same order as their sources.
+     */
+    @SuppressWarnings("removal")
+    private <S> List<DecodedDataObject<T>> decodeConcurrently(List<Pair<Identifier, S>> sources, DataObjectDecoder<S, T> decoder) {
+
+        DynamicRegistryManager dynamicRegistries = Calio.DYNAMIC_REGISTRIES.get();
+        Map<TagKey<?>, Collection<RegistryEntry<?>>> registryTags = Calio.REGISTRY_TAGS.get();
+        decodingSnapshot = new SnapshotBuilder(copyStaticEntries()).build();
+
+        try {
+
+            return OrderedParallel.map(sources, source -> {
+
+                DynamicRegistryManager prevDynamicRegistries = Calio.DYNAMIC_REGISTRIES.get();
+                Map<TagKey<?>, Collection<RegistryEntry<?>>> prevRegistryTags = Calio.REGISTRY_TAGS.get();
+                DataObjectRegistry<?> prevDecodingRegistry = DECODING_REGISTRY.get();
+
+                Identifier id = source.getFirst();
+
+                Calio.DYNAMIC_REGISTRIES.set(dynamicRegistries);
+                Calio.REGISTRY_TAGS.set(registryTags);
+                DECODING_REGISTRY.set(this);
+
+                try (ParseContext.Scope scope = ParseContext.of(id).enter()) {
+                    return decoder.decode(id, source.getSecond());
+                } catch (Exception e) {
+                    return new DecodedDataObject<>(id, null, 0, e);
+                } finally {
+                    Calio.DYNAMIC_REGISTRIES.set(prevDynamicRegistries);
+                    Calio.REGISTRY_TAGS.set(prevRegistryTags);
+                    DECODING_REGISTRY.set(prevDecodingRegistry);
+                }
+
+            }, Util.getMainWorkerExecutor());
+
+        } finally {
+            decodingSnapshot = null;
+        }
+
+    }
+
+    /**
+     *  Decodes the specified (changed) sources of a reload and registers the decoded data objects in order, reusing the unchanged
+     *  entries of the incremental reload (if any) first. Serially decoded data objects are decoded and registered one by one, so
+     *  that reads from the loading thread see the data objects that were registered before them; concurrently decoded data objects
+     *  are decoded first, and then registered in the same order (and with the same loading priorities).
+     */
+    private <S> void load(Map<Identifier, List<S>> sources, @Nullable IncrementalReload<List<S>> incremental, DataObjectDecoder<S, T> decoder, boolean decodeConcurrently, boolean useLoadingPriority, Map<Identifier, Integer> loadingPriorities, BiConsumer<Identifier, Exception> errorHandler) {
+        if(decodeConcurrently) {
+            List<Pair<Identifier, S>> flatSources = new ArrayList<>();
+            sources.forEach((id, sourceList) -> sourceList.forEach(source -> flatSources.add(Pair.of(id, source))));
+            List<DecodedDataObject<T>> decodedDataObjects = decodeConcurrently(flatSources, decoder);
+            build(builder -> {
+                if(incremental != null) {
+                    incremental.reuseUnchanged(builder);
+                }
+                for(DecodedDataObject<T> decoded : decodedDataObjects) {
+                    registerDecoded(builder, decoded, useLoadingPriority, loadingPriorities, errorHandler);
+                }
+            });
+            return;
+        }
+        build(builder -> {
+            if(incremental != null) {
+                incremental.reuseUnchanged(builder);
+            }
+            sources.forEach((id, sourceList) -> {
+                for(S source : sourceList) {
+                    DecodedDataObject<T> decoded;
+                    try(ParseContext.Scope scope = ParseContext.of(id).enter()) {
+                        decoded = decoder.decode(id, source);
+                    } catch (Exception e) {
+                        decoded = new DecodedDataObject<>(id, null, 0, e);
+                    }
+                    registerDecoded(builder, decoded, useLoadingPriority, loadingPriorities, errorHandler);
+                }
+            });
+        });
+    }
+
+    /**
+     *  Registers the specified decoded data object, unless an entry with the same ID and a higher loading priority has been
+     *  registered before. Data objects that failed to decode are passed to the error handler instead.
+     */
+    private void registerDecoded(SnapshotBuilder builder, DecodedDataObject<T> decoded, boolean useLoadingPriority, Map<Identifier, Integer> loadingPriorities, BiConsumer<Identifier, Exception> errorHandler) {
+        Identifier id = decoded.id();
+        try {
+            if(decoded.exception() != null) {
+                throw decoded.exception();
+            }
+            if(useLoadingPriority) {
+                if(!builder.containsId(id) || loadingPriorities.get(id) < decoded.loadingPriority()) {
+                    loadingPriorities.put(id, decoded.loadingPriority());
+                    builder.register(id, decoded.dataObject());
+                }
+            } else {
+                builder.register(id, decoded.dataObject());
+            }
+        } catch (Exception e) {
+            if(errorHandler != null) {
+                errorHandler.accept(id, e);
+            }
+        }
+    }
+
+    private record EncodedEntry<T>(T dataObject, byte[] encoded, long hash) {
+
+    }
+
+    private record ReloadedEntry<T>(long sourceHash, T dataObject) {
+
+    }
+
+    /**
+     *  Splits the sources of a reload into the sources of entries that need to be decoded, and the entries of the previous reload
+     *  whose sources haven't changed since, which are reused instead. Sources that couldn't be hashed are always decoded.
+     */
+    private final class IncrementalReload<S> {
+
+        private final Object2LongMap<Identifier> sourceHashes = new Object2LongOpenHashMap<>();
+        private final Map<Identifier, S> changedSources = new LinkedHashMap<>();
+        private final Map<Identifier, T> unchangedEntries = new LinkedHashMap<>();
+
+        private int cachedEntryCount;
+
+        private IncrementalReload(Map<Identifier, S> sources, SourceHasher<S> hasher) {
+            Map<Identifier, ReloadedEntry<T>> previousEntries = reloadedEntries;
+            Map<Identifier, PersistentDataObjectCache.Entry> cachedEntries = Map.of();
+            if(persistentCache && !persistentCacheRead) {
+                cachedEntries = PersistentDataObjectCache.read(registryId);
+                persistentCacheRead = true;
+            }
+            Map<Identifier, PersistentDataObjectCache.Entry> finalCachedEntries = cachedEntries;
+            sources.forEach((id, source) -> {
+                long sourceHash;
+                try {
+                    sourceHash = hasher.hash(source);
+                } catch(Exception e) {
+                    Calio.LOGGER.warn("Couldn't hash the data of \"{}\" of data object registry \"{}\": {}", id, registryId, e.getMessage());
+                    changedSources.put(id, source);
+                    return;
+                }
+                sourceHashes.put(id, sourceHash);
+                ReloadedEntry<T> previousEntry = previousEntries.get(id);
+                if(previousEntry != null && previousEntry.sourceHash() == sourceHash) {
+                    unchangedEntries.put(id, previousEntry.dataObject());
+                    return;
+                }
+                PersistentDataObjectCache.Entry cachedEntry = finalCachedEntries.get(id);
+                if(cachedEntry != null && cachedEntry.sourceHash() == sourceHash) {
+                    T dataObject = decodeCached(id, cachedEntry.encoded());
+                    if(dataObject != null) {
+                        unchangedEntries.put(id, dataObject);
+                        cachedEntryCount++;
+                        return;
+                    }
+                }
+                changedSources.put(id, source);
+            });
+        }
+
+        @Nullable
+        private T decodeCached(Identifier id, byte[] encoded) {
+            try {
+                T dataObject = decodeDataObject(encoded);
+                //  The encoding of the data object is reused when syncing, as it's the same
+                putLastEncodedEntry(id, new EncodedEntry<>(dataObject, encoded, hashEncoded(encoded)));
+                return dataObject;
+            } catch(Exception e) {
+                Calio.LOGGER.warn("Couldn't decode cached entry \"{}\" of data object registry \"{}\" (decoding it from data instead): {}", id, registryId, e.toString());
+                return null;
+            }
+        }
+
+        private Map<Identifier, S> getChangedSources() {
+            return changedSources;
+        }
+
+        private void reuseUnchanged(SnapshotBuilder builder) {
+            unchangedEntries.forEach(builder::register);
+        }
+
+        /**
+         *  Remembers the (published) entries of this reload, along with the hashes of their sources, for the next reload. Entries
+         *  that failed to load aren't remembered, so that they are decoded again.
+         */
+        private void remember() {
+            Map<Identifier, T> entries = snapshot.idToEntry();
+            Map<Identifier, ReloadedEntry<T>> currentEntries = new HashMap<>();
+            for(Object2LongMap.Entry<Identifier> sourceHash : sourceHashes.object2LongEntrySet()) {
+                T entry = entries.get(sourceHash.getKey());
+                if(entry != null) {
+                    currentEntries.put(sourceHash.getKey(), new ReloadedEntry<>(sourceHash.getLongValue(), entry));
+                }
+            }
+            reloadedEntries = currentEntries;
+            Calio.LOGGER.debug("Reloaded data object registry \"{}\": reused {} ({} from the persistent cache) and decoded {} entries", registryId, unchangedEntries.size(), cachedEntryCount, changedSources.size());
+            if(persistentCache) {
+                writePersistentCache(currentEntries);
+            }
+        }
+
+    }
+
+    private static long hashJson(List<JsonElement> jsonElements) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for(JsonElement jsonElement : jsonElements) {
+            hasher.putString(jsonElement.toString(), StandardCharsets.UTF_8);
+        }
+        return hasher.hash().asLong();
+    }
+
+    private static long hashStreamedDataFiles(List<StreamedDataFile> streamedDataFiles) throws IOException {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for(StreamedDataFile streamedDataFile : streamedDataFiles) {
+            hasher.putLong(streamedDataFile.getHash());
+        }
+        return hasher.hash().asLong();
+    }
+
+    /**
+     *  Encodes the specified entries (reusing the encodings of entries that were encoded before) and writes them to the persistent
+     *  cache on the IO worker executor.
+     */
+    private void writePersistentCache(Map<Identifier, ReloadedEntry<T>> entries) {
+        Map<Identifier, PersistentDataObjectCache.Entry> cacheEntries = new HashMap<>(entries.size());
+        entries.forEach((id, reloadedEntry) -> {
+            T dataObject = reloadedEntry.dataObject();
+            EncodedEntry<T> encodedEntry = getLastEncodedEntry(id);
+            if(encodedEntry == null || encodedEntry.dataObject() != dataObject) {
+                try {
+                    byte[] encoded = encodeDataObject(dataObject);
+                    encodedEntry = new EncodedEntry<>(dataObject, encoded, hashEncoded(encoded));
+                    putLastEncodedEntry(id, encodedEntry);
+                } catch(Exception e) {
+                    Calio.LOGGER.warn("Couldn't encode entry \"{}\" of data object registry \"{}\" for the persistent cache: {}", id, registryId, e.toString());
+                    return;
+                }
+            }
+            cacheEntries.put(id, new PersistentDataObjectCache.Entry(reloadedEntry.sourceHash(), encodedEntry.encoded()));
+        });
+        Util.getIoWorkerExecutor().execute(() -> PersistentDataObjectCache.write(registryId, cacheEntries));
+    }
+
+    @Nullable
+    private synchronized EncodedEntry<T> getLastEncodedEntry(Identifier id) {
+        return lastEncodedEntries.get(id);
+    }
+
+    private synchronized void putLastEncodedEntry(Identifier id, EncodedEntry<T> encodedEntry) {
+        lastEncodedEntries.put(id, encodedEntry);
+    }
+
+    @FunctionalInterface
+    private interface SourceHasher<S> {
+        long hash(S source) throws Exception;
+    }
+
+    private record DecodedDataObject<T>(Identifier id, @Nullable T dataObject, int loadingPriority, @Nullable Exception exception) {
+
+    }
+
+    /**
+     *  A data file found while preparing a reload of a {@link StreamingLoader}, along with the hash of its contents if reloads are
+     *  incremental, or the exception that was thrown while hashing them, which is passed to the error handler once the data file
+     *  is decoded.
+     */
+    private record StreamedDataFile(DataFile dataFile, OptionalLong hash, @Nullable IOException exception) {
+
+        private DataFile getDataFile() throws IOException {
+            if(exception != null) {
+                throw exception;
+            }
+            return dataFile;
+        }
+
+        private long getHash() throws IOException {
+            if(exception != null) {
+                throw exception;
+            }
+            return hash.orElseThrow();
+        }
+
+    }
+
+    /**
+     *  The entries of a sync that have been decoded so far (see {@link #startIncrementalSync(IdentifierPalette, int)}). Not
+     *  thread-safe; it's meant to be decoded into and committed on a single thread.
+     */
+    public final class IncrementalSync {
+
+        private final IdentifierPalette palette;
+        private final int flags;
+        private final Map<Identifier, T> decodedEntries = new HashMap<>();
+
+        private IncrementalSync(IdentifierPalette palette, int flags) {
+            this.palette = palette;
+            this.flags = flags;
+        }
+
+        public void decode(Identifier id, byte[] encoded) {
+            decodedEntries.put(id, decodeDataObject(encoded, palette, flags));
+        }
+
+        /**
+         *  Replaces the entries of this registry with the decoded entries with the specified IDs, in the order of the IDs.
+         *
+         *  @throws IllegalStateException if any of the entries hasn't been decoded
+         */
+        public void commit(Collection<Identifier> ids, Consumer<Runnable> scheduler) {
+            LinkedHashMap<Identifier, T> entries = new LinkedHashMap<>(ids.size());
+            for(Identifier id : ids) {
+                T entry = decodedEntries.get(id);
+                if(entry == null) {
+                    throw new IllegalStateException("Entry \"" + id + "\" of data object registry \"" + registryId + "\" wasn't decoded");
+                }
+                entries.put(id, entry);
+            }
+            replaceEntries(entries, scheduler);
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface DataObjectDecoder<S, T> {
+        DecodedDataObject<T> decode(Identifier id, S source) throws Exception;
+    }
+
+    /**
+     *  <p>The non-static entries of a registry encoded in a sync profile and their hashes, and the payload of the sync packet of
+     *  the profile: the full payload in the legacy profile, and the hash list in the others. The payload is built along with the
+     *  profile, so that a profile never changes once it's shared.</p>
+     *
+     *  <p>The payload is a read-only, unpooled heap buffer, which isn't reference counted (the sent packets don't release it), so
+     *  each legacy sync sends a plain duplicate of it (so that reader indices aren't shared), and the garbage collector frees it
+     *  once the profile has been replaced and no packet refers to it anymore. The hash list is copied behind the registry ID and
+     *  the sync ID of each delta sync instead, as the sync ID differs per player.</p>
+     */
+    private static final class SyncProfile {
+
+        private final Map<Identifier, byte[]> encodedEntries;
+        private final Object2LongMap<Identifier> hashes;
+        private final ByteBuf payload;
+
+        private SyncProfile(Identifier registryId, int flags, @Nullable IdentifierPalette palette, Map<Identifier, byte[]> encodedEntries, Object2LongMap<Identifier> hashes) {
+            this.encodedEntries = encodedEntries;
+            this.hashes = hashes;
+            this.payload = palette == null
+                ? writeFullPayload(registryId, encodedEntries)
+                : writeHashesPayload(flags, palette, hashes);
+        }
+
+        private Map<Identifier, byte[]> encodedEntries() {
+            return encodedEntries;
+        }
+
+        private Object2LongMap<Identifier> hashes() {
+            return hashes;
+        }
+
+        private ByteBuf payload() {
+            return payload;
+        }
+
+        private static ByteBuf writeFullPayload(Identifier registryId, Map<Identifier, byte[]> encodedEntries) {
+            PacketByteBuf payload = new PacketByteBuf(Unpooled.buffer());
+            payload.writeIdentifier(registryId);
+            writeEncodedEntries(payload, encodedEntries);
+            return payload.asReadOnly();
+        }
+
+        /**
+         *  Writes the hash list, in which the profile flags (and the raw ID fingerprint, if the profile uses raw IDs) and the
+         *  identifier palette of the entries are written in front of the hashes, so that the client knows how to decode the
+         *  entries it receives, and whether the entries it has cached can still be decoded.
+         */
+        private static ByteBuf writeHashesPayload(int flags, IdentifierPalette palette, Object2LongMap<Identifier> hashes) {
+            PacketByteBuf payload = new PacketByteBuf(Unpooled.buffer());
+            payload.writeByte(flags);
+            if((flags & CalioNetworking.PROFILE_RAW_REGISTRY_IDS) != 0) {
+                payload.writeLong(CalioNetworking.getRawIdFingerprint());
+            }
+            palette.write(payload);
+            CalioNetworking.writeHashes(payload, hashes, (flags & CalioNetworking.PROFILE_COMPACT) != 0);
+            return payload.asReadOnly();
+        }
+
+    }
+
+    /**
+     *  An immutable view of the entries of a registry, in the order they were registered in.
+     */
+    private record Snapshot<T>(Map<Identifier, T> idToEntry, Map<T, Identifier> entryToId, List<T> values) {
+
+        static <T> Snapshot<T> empty() {
+            return new Snapshot<>(Map.of(), Map.of(), List.of());
+        }
+
+    }
+
+    /**
+     *  Collects the entries of a new {@link Snapshot}. Only used by the thread that created it.
+     */
+    private final class SnapshotBuilder {
+
+        private final Thread owner = Thread.currentThread();
+        private final LinkedHashMap<Identifier, T> idToEntry;
+        private final HashMap<T, Identifier> entryToId = new HashMap<>();
+
+        private SnapshotBuilder(Map<Identifier, T> entries) {
+            this.idToEntry = new LinkedHashMap<>(entries);
+            this.idToEntry.forEach((id, entry) -> entryToId.put(entry, id));
+        }
+
+        private void register(Identifier id, T entry) {
+            idToEntry.put(id, entry);
+            entryToId.put(entry, id);
+        }
+
+        private T get(Identifier id) {
+            return idToEntry.get(id);
+        }
+
+        private Identifier getId(T entry) {
+            return entryToId.get(entry);
+        }
+
+        private boolean containsId(Identifier id) {
+            return idToEntry.containsKey(id);
+        }
+
+        private Snapshot<T> build() {
+            return new Snapshot<>(Collections.unmodifiableMap(new LinkedHashMap<>(idToEntry)), Collections.unmodifiableMap(new HashMap<>(entryToId)), Collections.unmodifiableList(new ArrayList<>(idToEntry.values())));
+        }
+
+    }
+
     private class Loader extends MultiJsonDataLoader implements IdentifiableResourceReloadListener {
 
         private static final Gson GSON = (new GsonBuilder()).setPrettyPrinting().disableHtmlEscaping().create();
         private static final HashMap<Identifier, Integer> LOADING_PRIORITIES = new HashMap<>();
         private final boolean useLoadingPriority;
         private final BiConsumer<Identifier, Exception> errorHandler;
+        private final boolean parseInParallel;
+        private final boolean decodeInParallel;
 
-        public Loader(String dataFolder, boolean useLoadingPriority, BiConsumer<Identifier, Exception> errorHandler) {
+        public Loader(String dataFolder, boolean useLoadingPriority, BiConsumer<Identifier, Exception> errorHandler, boolean parseInParallel, boolean decodeInParallel) {
             super(GSON, dataFolder);
             this.useLoadingPriority = useLoadingPriority;
             this.errorHandler = errorHandler;
+            this.parseInParallel = parseInParallel;
+            this.decodeInParallel = decodeInParallel;
         }
 
         @Override
-        protected void apply(Map<Identifier, List<JsonElement>> data, ResourceManager manager, Profiler profiler) {
-            clear();
+        protected boolean parsesInParallel() {
+            return parseInParallel;
+        }
+
+        @Override
+        protected void apply(Map<Identifier, List<JsonElement>> allData, ResourceManager manager, Profiler profiler) {
             LOADING_PRIORITIES.clear();
-            data.forEach((id, jel) -> {
-                for(JsonElement je : jel) {
+            IncrementalReload<List<JsonElement>> incremental = incrementalReload ? new IncrementalReload<>(allData, DataObjectRegistry::hashJson) : null;
+            Map<Identifier, List<JsonElement>> data = incremental != null ? incremental.getChangedSources() : allData;
+            load(data, incremental, this::decode, decodeInParallel, useLoadingPriority, LOADING_PRIORITIES, errorHandler);
+            if(incremental != null) {
+                incremental.remember();
+            }
+        }
+
+        private DecodedDataObject<T> decode(Identifier id, JsonElement je) {
+            int[] loadingPriority = new int[1];
+            T t = readDataObject(je, useLoadingPriority ? loadingPriority : null);
+            return new DecodedDataObject<>(id, t, loadingPriority[0], null);
+        }
+
+        @Override
+        public Identifier getFabricId() {
+            return registryId;
+        }
+    }
+
+    /**
+     *  Loads the data objects by streaming each data file directly into the data instances of their factories, instead of reading
+     *  every file into a JSON element during preparation. Preparation only finds the data files (and hashes their contents if
+     *  reloads are incremental), without keeping their contents, so that each file is only held in memory while it's decoded.
+     */
+    private class StreamingLoader extends SinglePreparationResourceReloader<Map<Identifier, List<StreamedDataFile>>> implements IdentifiableResourceReloadListener {
+
+        private static final Map<String, JsonFormat> VALID_EXTENSIONS = Util.make(new HashMap<>(), map -> {
+            map.put(".json", JsonFormat.JSON);
+            map.put(".json5", JsonFormat.JSON5);
+            map.put(".jsonc", JsonFormat.JSONC);
+        });
+
+        private final String dataFolder;
+        private final boolean useLoadingPriority;
+        private final BiConsumer<Identifier, Exception> errorHandler;
+
+        private final boolean decodeInParallel;
+
+        private final HashMap<Identifier, Integer> loadingPriorities = new HashMap<>();
+
+        public StreamingLoader(String dataFolder, boolean useLoadingPriority, BiConsumer<Identifier, Exception> errorHandler, boolean decodeInParallel) {
+            this.dataFolder = dataFolder;
+            this.useLoadingPriority = useLoadingPriority;
+            this.errorHandler = errorHandler;
+            this.decodeInParallel = decodeInParallel;
+        }
+
+        @Override
+        protected Map<Identifier, List<StreamedDataFile>> prepare(ResourceManager manager, Profiler profiler) {
+            Map<Identifier, List<StreamedDataFile>> result = new LinkedHashMap<>();
+            ResourceIndex.forEach(manager, dataFolder, this::hasValidExtension, (fileId, resources) -> {
+                Identifier id = trim(fileId);
+                JsonFormat jsonFormat = VALID_EXTENSIONS.get("." + FilenameUtils.getExtension(fileId.getPath()));
+                for(Resource resource : resources) {
+                    DataFile dataFile = new DataFile(fileId, id, jsonFormat, resource, ResourceType.SERVER_DATA);
+                    StreamedDataFile streamedDataFile;
                     try {
-                        SerializableData.CURRENT_NAMESPACE = id.getNamespace();
-                        SerializableData.CURRENT_PATH = id.getPath();
-                        JsonObject jo = je.getAsJsonObject();
-                        T t = readDataObject(je);
-                        if(useLoadingPriority) {
-                            int loadingPriority = JsonHelper.getInt(jo, "loading_priority", 0);
-                            if(!containsId(id) || LOADING_PRIORITIES.get(id) < loadingPriority) {
-                                LOADING_PRIORITIES.put(id, loadingPriority);
-                                register(id, t);
-                            }
-                        } else {
-                            register(id, t);
-                        }
-                    } catch (Exception e) {
-                        if(errorHandler != null) {
-                            errorHandler.accept(id, e);
-                        }
+                        streamedDataFile = new StreamedDataFile(dataFile, incrementalReload ? OptionalLong.of(dataFile.hashContent()) : OptionalLong.empty(), null);
+                    } catch (IOException e) {
+                        streamedDataFile = new StreamedDataFile(dataFile, OptionalLong.empty(), e);
                     }
+                    result.computeIfAbsent(id, k -> new LinkedList<>()).add(streamedDataFile);
                 }
             });
+            return result;
+        }
+
+        @Override
+        protected void apply(Map<Identifier, List<StreamedDataFile>> allData, ResourceManager manager, Profiler profiler) {
+            loadingPriorities.clear();
+            IncrementalReload<List<StreamedDataFile>> incremental = incrementalReload ? new IncrementalReload<>(allData, DataObjectRegistry::hashStreamedDataFiles) : null;
+            Map<Identifier, List<StreamedDataFile>> data = incremental != null ? incremental.getChangedSources() : allData;
+            load(data, incremental, this::decode, decodeInParallel, useLoadingPriority, loadingPriorities, errorHandler);
+            if(incremental != null) {
+                incremental.remember();
+            }
+        }
+
+        private DecodedDataObject<T> decode(Identifier id, StreamedDataFile streamedDataFile) throws IOException {
+            DataFile dataFile = streamedDataFile.getDataFile();
+            try(Reader resourceReader = dataFile.openReader()) {
+                int[] loadingPriority = new int[1];
+                T t = readDataObject(new GsonReader(org.quiltmc.parsers.json.JsonReader.create(resourceReader, dataFile.jsonFormat())), useLoadingPriority ? loadingPriority : null);
+                return new DecodedDataObject<>(id, t, loadingPriority[0], null);
+            }
         }
 
         @Override
         public Identifier getFabricId() {
             return registryId;
         }
+
+        private Identifier trim(Identifier fileId) {
+            String path = FilenameUtils.removeExtension(fileId.getPath()).substring(dataFolder.length() + 1);
+            return new Identifier(fileId.getNamespace(), path);
+        }
+
+        private boolean hasValidExtension(Identifier fileId) {
+            return VALID_EXTENSIONS.keySet()
+                .stream()
+                .anyMatch(suffix -> fileId.getPath().endsWith(suffix));
+        }
+
     }
 
     public static class Builder<T extends DataObject<T>> {
@@ -337,6 +1254,12 @@ public class DataObjectRegistry<T extends DataObject<T>> {
         private boolean readFromData = false;
         private boolean useLoadingPriority;
         private BiConsumer<Identifier, Exception> errorHandler;
+        private boolean streamData;
+        private boolean parseInParallel;
+        private boolean decodeInParallel;
+        private boolean compactSync;
+        private boolean incrementalReload;
+        private boolean persistentCache;
 
         public Builder(Identifier registryId, Class<T> objectClass) {
             this.registryId = registryId;
@@ -378,13 +1301,82 @@ public class DataObjectRegistry<T extends DataObject<T>> {
             return this;
         }
 
+        /**
+         *  Streams the data files directly into data objects when reading from data, instead of reading each file into a JSON
+         *  element first. The data files are read while preparing the reload, and streamed into data objects when it's applied
+         *  (concurrently, if {@link #decodeInParallel()} is used as well). Syntax errors in data files are passed to the data error
+         *  handler.
+         */
+        public Builder<T> streamData() {
+            this.streamData = true;
+            return this;
+        }
+
+        /**
+         *  Parses the data files concurrently when reading from data. The data objects are still registered in the same order
+         *  as when the data files are parsed serially. Has no effect if the data files are streamed.
+         */
+        public Builder<T> parseInParallel() {
+            this.parseInParallel = true;
+            return this;
+        }
+
+        /**
+         *  Decodes the data objects concurrently when reading from data, and then registers them in the same order (and with the
+         *  same loading priorities) as when they are decoded serially. Data object factories must then not depend on the data
+         *  objects of this registry that are loaded from data, as reads from this registry while decoding only see its static
+         *  entries.
+         */
+        public Builder<T> decodeInParallel() {
+            this.decodeInParallel = true;
+            return this;
+        }
+
+        /**
+         *  Syncs the data objects (and the hash list of the registry) in the compact profile to players whose protocol version
+         *  supports it, in which sizes, ordinals and ints are written as VarInts. Players with an older protocol version still
+         *  receive them in the profile of their protocol version.
+         */
+        public Builder<T> compactSync() {
+            this.compactSync = true;
+            return this;
+        }
+
+        /**
+         *  Reuses the data objects whose data files haven't changed since the previous reload when reading from data, instead
+         *  of decoding them again. Data object factories must then only depend on the data files of their data objects (and not
+         *  e.g: on tags or other registries, which could have changed in between reloads).
+         */
+        public Builder<T> incrementalReload() {
+            this.incrementalReload = true;
+            return this;
+        }
+
+        /**
+         *  Caches the data objects that are read from data on disk, so that the data objects whose data files haven't changed
+         *  since the game was last run are decoded from the cache on the first reload, instead of from JSON. Implies
+         *  {@link #incrementalReload()}, with the same restrictions on data object factories.
+         *
+         *  <p>The data files are still read (and hashed) to determine whether they have changed. Only if the data files are
+         *  {@linkplain #streamData() streamed} does this skip parsing them as well; otherwise every data file is parsed into a JSON
+         *  element while preparing the reload, and this only skips decoding the data objects from it.</p>
+         */
+        public Builder<T> persistentCache() {
+            this.persistentCache = true;
+            this.incrementalReload = true;
+            return this;
+        }
+
         public DataObjectRegistry<T> buildAndRegister() {
             DataObjectRegistry<T> registry;
             if(readFromData) {
-                registry = new DataObjectRegistry<>(registryId, objectClass, factoryFieldName, defaultFactory, jsonPreprocessor, dataFolder, useLoadingPriority, errorHandler);
+                registry = new DataObjectRegistry<>(registryId, objectClass, factoryFieldName, defaultFactory, jsonPreprocessor, dataFolder, useLoadingPriority, errorHandler, streamData, parseInParallel, decodeInParallel);
             } else {
                 registry = new DataObjectRegistry<>(registryId, objectClass, factoryFieldName, defaultFactory, jsonPreprocessor);
             }
+            registry.compactSync = compactSync;
+            registry.incrementalReload = incrementalReload;
+            registry.persistentCache = persistentCache;
             REGISTRIES.put(registryId, registry);
             if(autoSync) {
                 AUTO_SYNC_SET.add(registryId);
@@ -0,0 +1,28 @@
+package io.github.apace100.calio.registry;
+
+import net.fabricmc.fabric.api.event.Event;
+import net.fabricmc.fabric.api.event.EventFactory;
+
+public final class DataObjectRegistryEvents {
+
+    /**
+     *  Called on the client thread after the entries of a data object registry have been replaced by the entries that were synced
+     *  from the server. On an integrated server, which shares its registries with the client, this is called once the sync has
+     *  been received, without the entries being replaced.
+     */
+    public static final Event<Synced> SYNCED = EventFactory.createArrayBacked(Synced.class, listeners -> registry -> {
+        for (Synced listener : listeners) {
+            listener.onSynced(registry);
+        }
+    });
+
+    private DataObjectRegistryEvents() {
+
+    }
+
+    @FunctionalInterface
+    public interface Synced {
+        void onSynced(DataObjectRegistry<?> registry);
+    }
+
+}
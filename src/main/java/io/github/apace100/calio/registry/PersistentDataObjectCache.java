@@ -0,0 +1,155 @@
+package io.github.apace100.calio.registry;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.github.apace100.calio.Calio;
+import io.netty.buffer.Unpooled;
+import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.ModContainer;
+import net.fabricmc.loader.api.metadata.ModMetadata;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.Identifier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *  <p>Stores the encoded data objects of a {@link DataObjectRegistry} that were loaded from data on disk, along with the hashes of
+ *  their sources, so that the data objects whose data files haven't changed since the game was last run can be decoded from their
+ *  (binary) encoding on the first reload, instead of being parsed and decoded from JSON.</p>
+ *
+ *  <p>The data objects are encoded with the same codecs that are used for syncing them. A cache is ignored if it was written with
+ *  a different set (or versions) of mods, since the codecs of their data object factories could have changed.</p>
+ */
+final class PersistentDataObjectCache {
+
+    private static final int MAGIC = 0x43414C43;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final Path CACHE_DIRECTORY = FabricLoader.getInstance().getGameDir().resolve(".calio").resolve("cache");
+
+    private static long environmentHash;
+
+    private PersistentDataObjectCache() {
+
+    }
+
+    /**
+     *  Reads the cache of the specified registry. The file is read onto the heap at once instead of being memory-mapped, as a
+     *  mapped file stays locked on Windows (so that it can't be replaced by the next {@link #write(Identifier, Map)}) until the
+     *  mapping is garbage collected.
+     *
+     *  @return the cached entries by their IDs, or an empty map if there is no (valid) cache.
+     */
+    static Map<Identifier, Entry> read(Identifier registryId) {
+
+        Path path = getPath(registryId);
+        if (!Files.isRegularFile(path)) {
+            return Map.of();
+        }
+
+        try {
+
+            PacketByteBuf buf = new PacketByteBuf(Unpooled.wrappedBuffer(Files.readAllBytes(path)));
+
+            if (buf.readInt() != MAGIC || buf.readVarInt() != FORMAT_VERSION || buf.readLong() != getEnvironmentHash()) {
+                return Map.of();
+            }
+
+            int entryCount = buf.readVarInt();
+            Map<Identifier, Entry> entries = new HashMap<>(entryCount);
+
+            for (int i = 0; i < entryCount; i++) {
+                entries.put(buf.readIdentifier(), new Entry(buf.readLong(), buf.readByteArray()));
+            }
+
+            return entries;
+
+        } catch (Exception e) {
+            Calio.LOGGER.warn("Couldn't read the cache of data object registry \"{}\" (ignoring it): {}", registryId, e.toString());
+            return Map.of();
+        }
+
+    }
+
+    /**
+     *  Writes the specified entries as the cache of the specified registry, replacing the previous cache at once.
+     */
+    static void write(Identifier registryId, Map<Identifier, Entry> entries) {
+
+        Path path = getPath(registryId);
+        PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+
+        buf.writeInt(MAGIC);
+        buf.writeVarInt(FORMAT_VERSION);
+        buf.writeLong(getEnvironmentHash());
+
+        buf.writeVarInt(entries.size());
+        entries.forEach((id, entry) -> {
+            buf.writeIdentifier(id);
+            buf.writeLong(entry.sourceHash());
+            buf.writeByteArray(entry.encoded());
+        });
+
+        try {
+
+            Files.createDirectories(path.getParent());
+            Path tempPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer nioBuffer = buf.nioBuffer();
+                while (nioBuffer.hasRemaining()) {
+                    channel.write(nioBuffer);
+                }
+            }
+
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException e) {
+            Calio.LOGGER.warn("Couldn't write the cache of data object registry \"{}\": {}", registryId, e.toString());
+        } finally {
+            buf.release();
+        }
+
+    }
+
+    private static Path getPath(Identifier registryId) {
+        return CACHE_DIRECTORY.resolve(registryId.getNamespace()).resolve(registryId.getPath() + ".bin");
+    }
+
+    /**
+     *  @return a hash of the IDs and versions of the loaded mods.
+     */
+    private static synchronized long getEnvironmentHash() {
+
+        if (environmentHash != 0L) {
+            return environmentHash;
+        }
+
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        FabricLoader.getInstance().getAllMods().stream()
+            .map(ModContainer::getMetadata)
+            .sorted(Comparator.comparing(ModMetadata::getId))
+            .forEach(metadata -> hasher
+                .putString(metadata.getId(), StandardCharsets.UTF_8)
+                .putString(metadata.getVersion().getFriendlyString(), StandardCharsets.UTF_8));
+
+        environmentHash = hasher.hash().asLong();
+        return environmentHash;
+
+    }
+
+    record Entry(long sourceHash, byte[] encoded) {
+
+    }
+
+}
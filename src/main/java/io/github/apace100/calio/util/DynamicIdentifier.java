@@ -1,7 +1,7 @@
 package io.github.apace100.calio.util;
 
 import com.google.gson.JsonElement;
-import io.github.apace100.calio.data.SerializableData;
+import io.github.apace100.calio.data.ParseContext;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.InvalidIdentifierException;
 
@@ -22,17 +22,20 @@ public class DynamicIdentifier extends Identifier {
     public static Identifier of(String idString, String defaultNamespace) {
 
         String[] namespaceAndPath = splitWithNamespace(idString, defaultNamespace);
+        String currentNamespace = ParseContext.currentNamespace();
+        String currentPath = ParseContext.currentPath();
+
         if (namespaceAndPath[0].contains("*")) {
-            if (SerializableData.CURRENT_NAMESPACE != null) {
-                namespaceAndPath[0] = namespaceAndPath[0].replace("*", SerializableData.CURRENT_NAMESPACE);
+            if (currentNamespace != null) {
+                namespaceAndPath[0] = namespaceAndPath[0].replace("*", currentNamespace);
             } else {
                 throw new InvalidIdentifierException("Identifiers may only contain '*' in its namespace in data loaders that support it.");
             }
         }
 
         if (namespaceAndPath[1].contains("*")) {
-            if (SerializableData.CURRENT_PATH != null) {
-                namespaceAndPath[1] = namespaceAndPath[1].replace("*", SerializableData.CURRENT_PATH);
+            if (currentPath != null) {
+                namespaceAndPath[1] = namespaceAndPath[1].replace("*", currentPath);
             } else {
                 throw new InvalidIdentifierException("Identifiers may only contain '*' in its path in data loaders that support it.");
             }
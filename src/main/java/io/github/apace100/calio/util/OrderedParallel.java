@@ -0,0 +1,46 @@
+package io.github.apace100.calio.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+public final class OrderedParallel {
+
+    /**
+     *  Applies the specified function to each of the inputs concurrently on the specified executor, and waits for all of them to
+     *  complete.
+     *
+     *  @return the results, in the same order as their inputs.
+     */
+    public static <T, R> List<R> map(List<T> inputs, Function<? super T, ? extends R> function, Executor executor) {
+
+        List<CompletableFuture<? extends R>> futures = new ArrayList<>(inputs.size());
+        for (T input : inputs) {
+            futures.add(CompletableFuture.supplyAsync(() -> function.apply(input), executor));
+        }
+
+        List<R> results = new ArrayList<>(inputs.size());
+        for (CompletableFuture<? extends R> future : futures) {
+
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+
+                if (e.getCause() instanceof RuntimeException re) {
+                    throw re;
+                }
+
+                throw e;
+
+            }
+
+        }
+
+        return results;
+
+    }
+
+}
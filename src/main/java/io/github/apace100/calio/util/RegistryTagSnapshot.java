@@ -0,0 +1,104 @@
+package io.github.apace100.calio.util;
+
+import net.minecraft.registry.Registry;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ *  <p>An immutable snapshot of the tags that were loaded by the last data pack (re)load, by their registries. The snapshot is
+ *  published globally once the tags have been loaded, so that every thread (e.g: the workers of parallel data loaders) validates
+ *  against the same tags, and is cleared when a reload starts, so that nothing is validated against the tags of the previous
+ *  reload.</p>
+ *
+ *  <p>The tags of each registry are the maps that were loaded by the tag manager loader itself; they aren't copied.</p>
+ */
+public final class RegistryTagSnapshot {
+
+    private static volatile RegistryTagSnapshot current;
+
+    private final Map<RegistryKey<? extends Registry<?>>, Map<Identifier, ? extends Collection<? extends RegistryEntry<?>>>> registryTags;
+
+    public RegistryTagSnapshot(Map<RegistryKey<? extends Registry<?>>, Map<Identifier, ? extends Collection<? extends RegistryEntry<?>>>> registryTags) {
+        this.registryTags = Map.copyOf(registryTags);
+    }
+
+    /**
+     *  @return the current snapshot, or {@code null} if no tags have been loaded yet, or if they're being reloaded.
+     */
+    @Nullable
+    public static RegistryTagSnapshot current() {
+        return current;
+    }
+
+    /**
+     *  Publishes the specified snapshot (or clears the current snapshot if it's {@code null}.)
+     */
+    public static void publish(@Nullable RegistryTagSnapshot snapshot) {
+        current = snapshot;
+    }
+
+    /**
+     *  @return whether the specified tag exists in the current snapshot, or {@code true} if there is no current snapshot (in which
+     *  case tags can't be validated.)
+     */
+    public static boolean exists(TagKey<?> tagKey) {
+        RegistryTagSnapshot snapshot = current;
+        return snapshot == null || snapshot.contains(tagKey);
+    }
+
+    /**
+     *  @return whether the specified tag was loaded.
+     */
+    public boolean contains(TagKey<?> tagKey) {
+        return getTags(tagKey.registry()).containsKey(tagKey.id());
+    }
+
+    /**
+     *  @return the entries of the tags of the specified registry by the IDs of the tags, or an empty map if the registry has no tags.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<Identifier, Collection<RegistryEntry<T>>> getTags(RegistryKey<? extends Registry<T>> registryKey) {
+        return (Map<Identifier, Collection<RegistryEntry<T>>>) (Map<?, ?>) registryTags.getOrDefault(registryKey, Map.of());
+    }
+
+    /**
+     *  @return a read-only view of this snapshot in the format of the deprecated {@code Calio.REGISTRY_TAGS}, which looks up each
+     *  tag key in this snapshot instead of copying every tag into a map of its own.
+     */
+    public Map<TagKey<?>, Collection<RegistryEntry<?>>> asTagKeyMap() {
+        return new AbstractMap<>() {
+
+            @Override
+            public boolean containsKey(Object key) {
+                return key instanceof TagKey<?> tagKey && RegistryTagSnapshot.this.contains(tagKey);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Collection<RegistryEntry<?>> get(Object key) {
+                return key instanceof TagKey<?> tagKey
+                    ? (Collection<RegistryEntry<?>>) registryTags.getOrDefault(tagKey.registry(), Map.of()).get(tagKey.id())
+                    : null;
+            }
+
+            @Override
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            public Set<Entry<TagKey<?>, Collection<RegistryEntry<?>>>> entrySet() {
+
+                Set<Entry<TagKey<?>, Collection<RegistryEntry<?>>>> entries = new HashSet<>();
+                registryTags.forEach((registryKey, tags) -> tags.forEach((id, tagEntries) ->
+                    entries.add(Map.entry(TagKey.of((RegistryKey) registryKey, id), (Collection<RegistryEntry<?>>) tagEntries))));
+
+                return Collections.unmodifiableSet(entries);
+
+            }
+
+        };
+    }
+
+}
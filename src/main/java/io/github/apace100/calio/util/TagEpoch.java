@@ -0,0 +1,56 @@
+package io.github.apace100.calio.util;
+
+import net.fabricmc.fabric.api.event.Event;
+import net.fabricmc.fabric.api.event.EventFactory;
+import net.minecraft.registry.DynamicRegistryManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *  <p>A global, monotonically increasing counter of tag reloads. The epoch is advanced whenever the tags of a registry are (re)bound
+ *  to its entries, on either the server or the client, so that structures derived from tag membership (e.g: {@link TagLike}) can
+ *  store the epoch they were built in and check whether they're stale with a single {@code int} comparison.</p>
+ *
+ *  <p>Since a single reload binds the tags of several registries, the epoch can advance more than once per reload.</p>
+ */
+public final class TagEpoch {
+
+    private static final AtomicInteger EPOCH = new AtomicInteger();
+
+    /**
+     *  Called after the tags of every registry have been bound, with the epoch they were bound in. On the server, this is called
+     *  after the data packs have been (re)loaded; on the client, after the tags have been synced from the server.
+     */
+    public static final Event<TagsReloaded> TAGS_RELOADED = EventFactory.createArrayBacked(TagsReloaded.class, listeners -> (epoch, registries, client) -> {
+        for (TagsReloaded listener : listeners) {
+            listener.onTagsReloaded(epoch, registries, client);
+        }
+    });
+
+    private TagEpoch() {
+
+    }
+
+    /**
+     *  @return the current tag epoch.
+     */
+    public static int current() {
+        return EPOCH.get();
+    }
+
+    /**
+     *  Advances the tag epoch, which invalidates every structure that was built in a previous epoch. This is called by Calio
+     *  whenever tags are bound; it should only be called by others if they bind tags by other means.
+     *
+     *  @return the new tag epoch.
+     */
+    public static int advance() {
+        return EPOCH.incrementAndGet();
+    }
+
+    @FunctionalInterface
+    public interface TagsReloaded {
+        void onTagsReloaded(int epoch, DynamicRegistryManager registries, boolean client);
+    }
+
+}
@@ -5,8 +5,8 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSyntaxException;
 import com.mojang.datafixers.util.Either;
-import io.github.apace100.calio.Calio;
 import io.github.apace100.calio.data.DataException;
+import io.github.apace100.calio.network.SyncPacketByteBuf;
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.registry.Registry;
 import net.minecraft.registry.RegistryKey;
@@ -25,6 +25,8 @@ public class TagLike<T> {
     private final List<TagKey<T>> tags = new LinkedList<>();
     private final Set<T> items = new HashSet<>();
 
+    private volatile Membership membership;
+
     public TagLike(Registry<T> registry) {
         this.registry = registry;
     }
@@ -39,33 +41,77 @@ public class TagLike<T> {
 
     public void addTag(TagKey<T> tagKey) {
         tags.add(tagKey);
+        membership = null;
     }
 
     public void add(T t) {
         items.add(t);
+        membership = null;
     }
 
     public void addAll(TagLike<T> otherTagLike) {
         this.tags.addAll(otherTagLike.tags);
         this.items.addAll(otherTagLike.items);
+        this.membership = null;
     }
 
+    /**
+     *  Checks whether the specified value is one of the items, or in one of the tags, of this tag-like. The items and the values
+     *  of the tags are resolved into a bit set over the raw IDs of the registry the first time this is called (and again once the
+     *  {@link TagEpoch tag epoch} advances or this tag-like changes), so that this is a single bit test.
+     */
     public boolean contains(T t) {
 
-        if (items.contains(t)) {
-            return true;
+        int rawId = registry.getRawId(t);
+        if (rawId < 0) {
+            return items.contains(t);
         }
 
-        RegistryEntry<T> entry = registry.getEntry(t);
-        return tags
-            .stream()
-            .anyMatch(entry::isIn);
+        return getMembership().rawIds().get(rawId);
+
+    }
+
+    private Membership getMembership() {
+
+        Membership membership = this.membership;
+        int epoch = TagEpoch.current();
+
+        if (membership != null && membership.epoch() == epoch) {
+            return membership;
+        }
+
+        BitSet rawIds = new BitSet();
+        for (T t : items) {
+
+            int rawId = registry.getRawId(t);
+            if (rawId >= 0) {
+                rawIds.set(rawId);
+            }
+
+        }
+
+        for (TagKey<T> tagKey : tags) {
+            for (RegistryEntry<T> entry : registry.iterateEntries(tagKey)) {
+
+                int rawId = registry.getRawId(entry.value());
+                if (rawId >= 0) {
+                    rawIds.set(rawId);
+                }
+
+            }
+        }
+
+        membership = new Membership(epoch, rawIds);
+        this.membership = membership;
+
+        return membership;
 
     }
 
     public void clear() {
         this.tags.clear();
         this.items.clear();
+        this.membership = null;
     }
 
     public void write(PacketByteBuf buf) {
@@ -75,19 +121,19 @@ public class TagLike<T> {
             buf.writeIdentifier(tagKey.id());
         }
 
-        List<Identifier> ids = new LinkedList<>();
+        List<T> registeredItems = new LinkedList<>();
         for (T t : items) {
 
             Identifier id = registry.getId(t);
 
             if (id != null) {
-                ids.add(id);
+                registeredItems.add(t);
             }
 
         }
 
-        buf.writeVarInt(ids.size());
-        ids.forEach(buf::writeIdentifier);
+        buf.writeVarInt(registeredItems.size());
+        registeredItems.forEach(t -> SyncPacketByteBuf.writeRegistryEntry(buf, registry, t));
 
     }
 
@@ -103,7 +149,9 @@ public class TagLike<T> {
         count = buf.readVarInt();
         for (int i = 0; i < count; i++) {
 
-            T t = registry.get(buf.readIdentifier());
+            T t = SyncPacketByteBuf.usesRawIds(buf, registry)
+                ? registry.get(buf.readVarInt())
+                : registry.get(buf.readIdentifier());
 
             if (t != null) {
                 items.add(t);
@@ -119,7 +167,6 @@ public class TagLike<T> {
             throw new JsonSyntaxException("Expected a string.");
         }
 
-        Map<TagKey<?>, Collection<RegistryEntry<?>>> registryTags = Calio.REGISTRY_TAGS.get();
         RegistryKey<? extends Registry<T>> registryKey = registry.getKey();
 
         String entry = jsonElement.getAsString();
@@ -130,7 +177,7 @@ public class TagLike<T> {
             entryId = DynamicIdentifier.of(entry.substring(1));
             TagKey<T> entryTag = TagKey.of(registryKey, entryId);
 
-            if (registryTags != null && !registryTags.containsKey(entryTag)) {
+            if (!RegistryTagSnapshot.exists(entryTag)) {
                 throw new IllegalArgumentException("Tag \"" + entryId + "\" for registry \"" + registryKey.getValue() + "\" doesn't exist.");
             }
 
@@ -231,4 +278,11 @@ public class TagLike<T> {
 
     }
 
+    /**
+     *  The raw IDs of the values of a tag-like, resolved with the tags as they were bound in the specified {@link TagEpoch tag epoch}.
+     */
+    private record Membership(int epoch, BitSet rawIds) {
+
+    }
+
 }